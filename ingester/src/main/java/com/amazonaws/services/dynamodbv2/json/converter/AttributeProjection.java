@@ -0,0 +1,159 @@
+package com.amazonaws.services.dynamodbv2.json.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Selects the attributes of a JSON object that are converted to DynamoDB attributes. A projection either includes
+ * only the listed attribute paths or includes everything except the listed attribute paths. An attribute path is a
+ * sequence of field names separated by dots, such as {@code time.creation_timestamp_utc}. Nested field names apply to
+ * the fields of JSON objects and to the fields of JSON objects in JSON arrays.
+ */
+public final class AttributeProjection {
+    /**
+     * Projection that includes all attributes.
+     */
+    public static final AttributeProjection ALL = new AttributeProjection(false,
+        Collections.<String, AttributeProjection> emptyMap());
+
+    /**
+     * Separator of field names in an attribute path.
+     */
+    private static final char PATH_SEPARATOR = '.';
+
+    /**
+     * Creates a projection that includes all attributes except the provided attribute paths.
+     *
+     * @param paths
+     *            Attribute paths to exclude
+     * @return Projection that excludes the attribute paths
+     */
+    public static AttributeProjection exclude(final String... paths) {
+        return build(false, paths);
+    }
+
+    /**
+     * Creates a projection that includes only the provided attribute paths.
+     *
+     * @param paths
+     *            Attribute paths to include
+     * @return Projection that includes only the attribute paths
+     */
+    public static AttributeProjection include(final String... paths) {
+        return build(true, paths);
+    }
+
+    /**
+     * Builds a projection from attribute paths.
+     *
+     * @param include
+     *            True if the paths are included, false if they are excluded
+     * @param paths
+     *            Attribute paths
+     * @return Projection for the attribute paths
+     */
+    private static AttributeProjection build(final boolean include, final String... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("Attribute paths cannot be null");
+        }
+        return build(include, Arrays.asList(paths));
+    }
+
+    /**
+     * Builds a projection for one nesting level by grouping the attribute paths by their first field name.
+     *
+     * @param include
+     *            True if the paths are included, false if they are excluded
+     * @param paths
+     *            Attribute paths relative to the nesting level
+     * @return Projection for the nesting level
+     */
+    private static AttributeProjection build(final boolean include, final List<String> paths) {
+        final Set<String> wholeFields = new HashSet<>();
+        final Map<String, List<String>> nestedPaths = new HashMap<>();
+        for (final String path : paths) {
+            if (path == null) {
+                throw new IllegalArgumentException("Attribute path cannot be null");
+            }
+            final int separator = path.indexOf(PATH_SEPARATOR);
+            final String fieldName = separator < 0 ? path : path.substring(0, separator);
+            if (fieldName.isEmpty()) {
+                throw new IllegalArgumentException("Empty field name in attribute path: " + path);
+            }
+            if (separator < 0) {
+                wholeFields.add(fieldName);
+            } else {
+                if (!nestedPaths.containsKey(fieldName)) {
+                    nestedPaths.put(fieldName, new ArrayList<String>());
+                }
+                nestedPaths.get(fieldName).add(path.substring(separator + 1));
+            }
+        }
+        final Map<String, AttributeProjection> fields = new HashMap<>();
+        for (final Entry<String, List<String>> entry : nestedPaths.entrySet()) {
+            fields.put(entry.getKey(), build(include, entry.getValue()));
+        }
+        // A path that ends at a field covers all longer paths through it
+        for (final String fieldName : wholeFields) {
+            fields.put(fieldName, null);
+        }
+        return new AttributeProjection(include, fields);
+    }
+
+    /**
+     * True if only the listed fields are included, false if the listed fields are excluded.
+     */
+    private final boolean include;
+    /**
+     * Listed fields, mapped to the projection of their nested fields or null if the whole field is listed.
+     */
+    private final Map<String, AttributeProjection> fields;
+
+    /**
+     * Constructs an {@link AttributeProjection}.
+     *
+     * @param include
+     *            True if only the listed fields are included, false if the listed fields are excluded
+     * @param fields
+     *            Listed fields, mapped to the projection of their nested fields or null if the whole field is listed
+     */
+    private AttributeProjection(final boolean include, final Map<String, AttributeProjection> fields) {
+        this.include = include;
+        this.fields = fields;
+    }
+
+    /**
+     * Gets the projection for the value of a field.
+     *
+     * @param fieldName
+     *            Name of the field
+     * @return Projection for the nested fields of the value. {@link #ALL} if the whole value is included. Null if the
+     *         field is excluded.
+     */
+    public AttributeProjection getProjection(final String fieldName) {
+        if (!fields.containsKey(fieldName)) {
+            return include ? null : ALL;
+        }
+        final AttributeProjection nested = fields.get(fieldName);
+        if (nested == null) {
+            return include ? ALL : null;
+        }
+        return nested;
+    }
+
+    /**
+     * Checks if the projection includes all attributes.
+     *
+     * @return True if no attribute is excluded
+     */
+    public boolean isAll() {
+        return !include && fields.isEmpty();
+    }
+}
@@ -0,0 +1,86 @@
+package com.amazonaws.services.dynamodbv2.json.converter;
+
+/**
+ * Accumulates the size of a DynamoDB item, as billed by DynamoDB, while the item is being converted. Not thread-safe;
+ * use one instance per conversion.
+ */
+public class ItemSize {
+    /**
+     * Maximum size of a DynamoDB item in bytes.
+     */
+    public static final long MAX_ITEM_BYTES = 400 * 1024; // 400 KB
+    /**
+     * Item size covered by one write capacity unit.
+     */
+    public static final long WRITE_CAPACITY_UNIT_BYTES = 1024; // 1 KB
+    /**
+     * Item size covered by one strongly consistent read capacity unit.
+     */
+    public static final long READ_CAPACITY_UNIT_BYTES = 4 * 1024; // 4 KB
+
+    /**
+     * Accumulated size in bytes.
+     */
+    private long bytes;
+
+    /**
+     * Adds bytes to the accumulated size.
+     *
+     * @param size
+     *            Number of bytes to add
+     */
+    public void add(final long size) {
+        bytes += size;
+    }
+
+    /**
+     * Gets the accumulated size in bytes.
+     *
+     * @return Item size in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of read capacity units consumed by a strongly consistent read of the item.
+     *
+     * @return Read capacity units
+     */
+    public long getReadCapacityUnits() {
+        return Math.max(1, (bytes + READ_CAPACITY_UNIT_BYTES - 1) / READ_CAPACITY_UNIT_BYTES);
+    }
+
+    /**
+     * Gets the number of write capacity units consumed by writing the item.
+     *
+     * @return Write capacity units
+     */
+    public long getWriteCapacityUnits() {
+        return Math.max(1, (bytes + WRITE_CAPACITY_UNIT_BYTES - 1) / WRITE_CAPACITY_UNIT_BYTES);
+    }
+
+    /**
+     * Checks if the item fits within the DynamoDB item size limit of {@link #MAX_ITEM_BYTES}.
+     *
+     * @return True if the item is not larger than {@link #MAX_ITEM_BYTES}
+     */
+    public boolean isWithinLimit() {
+        return bytes <= MAX_ITEM_BYTES;
+    }
+
+    /**
+     * Resets the accumulated size to zero so the instance can be reused for another item.
+     */
+    public void reset() {
+        bytes = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return bytes + " bytes";
+    }
+}
@@ -1,9 +1,11 @@
 package com.amazonaws.services.dynamodbv2.json.converter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
@@ -33,6 +35,21 @@ public interface JacksonConverter {
      */
     List<AttributeValue> jsonArrayToList(JsonNode array) throws JacksonConverterException;
 
+    /**
+     * Converts the JSON array at the current token of a JsonParser to a list of AttributeValues without building an
+     * intermediate JsonNode tree. If the parser has no current token, it is advanced to the first token. On return,
+     * the current token of the parser is the END_ARRAY token of the converted array.
+     *
+     * @param parser
+     *            A JsonParser positioned at the start of the target JSON array.
+     * @return A list of AttributeValues that represents the JSON array.
+     * @throws JacksonConverterException
+     *             if the current token is not the start of an array or the array is too deep
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    List<AttributeValue> jsonArrayToList(JsonParser parser) throws JacksonConverterException, IOException;
+
     /**
      * Converts a JSON object to a map of AttributeValues.
      *
@@ -44,6 +61,91 @@ public interface JacksonConverter {
      */
     Map<String, AttributeValue> jsonObjectToMap(JsonNode object) throws JacksonConverterException;
 
+    /**
+     * Converts the attributes of a JSON object that are selected by an {@link AttributeProjection} to a map of
+     * AttributeValues. Attributes that are not selected are not converted.
+     *
+     * @param object
+     *            A JsonNode instance that represents the target JSON object.
+     * @param projection
+     *            Projection that selects the attributes to convert
+     * @param size
+     *            Accumulator for the size of the item. Null if the size is not needed.
+     * @return A map of AttributeValues that represents the selected attributes of the JSON object.
+     * @throws JacksonConverterException
+     *             if JsonNode is not an object.
+     */
+    Map<String, AttributeValue> jsonObjectToMap(JsonNode object, AttributeProjection projection, ItemSize size)
+        throws JacksonConverterException;
+
+    /**
+     * Converts a JSON object to a map of AttributeValues and adds the size of the resulting DynamoDB item, as billed
+     * by DynamoDB, to an {@link ItemSize}.
+     *
+     * @param object
+     *            A JsonNode instance that represents the target JSON object.
+     * @param size
+     *            Accumulator for the size of the item
+     * @return A map of AttributeValues that represents the JSON object.
+     * @throws JacksonConverterException
+     *             if JsonNode is not an object.
+     */
+    Map<String, AttributeValue> jsonObjectToMap(JsonNode object, ItemSize size) throws JacksonConverterException;
+
+    /**
+     * Converts the JSON object at the current token of a JsonParser to a map of AttributeValues without building an
+     * intermediate JsonNode tree. If the parser has no current token, it is advanced to the first token. On return,
+     * the current token of the parser is the END_OBJECT token of the converted object.
+     *
+     * @param parser
+     *            A JsonParser positioned at the start of the target JSON object.
+     * @return A map of AttributeValues that represents the JSON object.
+     * @throws JacksonConverterException
+     *             if the current token is not the start of an object or the object is too deep
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    Map<String, AttributeValue> jsonObjectToMap(JsonParser parser) throws JacksonConverterException, IOException;
+
+    /**
+     * Converts the attributes of the JSON object at the current token of a JsonParser that are selected by an
+     * {@link AttributeProjection} to a map of AttributeValues. The values of attributes that are not selected are
+     * skipped at the token level. On return, the current token of the parser is the END_OBJECT token of the converted
+     * object.
+     *
+     * @param parser
+     *            A JsonParser positioned at the start of the target JSON object.
+     * @param projection
+     *            Projection that selects the attributes to convert
+     * @param size
+     *            Accumulator for the size of the item. Null if the size is not needed.
+     * @return A map of AttributeValues that represents the selected attributes of the JSON object.
+     * @throws JacksonConverterException
+     *             if the current token is not the start of an object or the object is too deep
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    Map<String, AttributeValue> jsonObjectToMap(JsonParser parser, AttributeProjection projection, ItemSize size)
+        throws JacksonConverterException, IOException;
+
+    /**
+     * Converts the JSON object at the current token of a JsonParser to a map of AttributeValues as
+     * {@link #jsonObjectToMap(JsonParser)} does and adds the size of the resulting DynamoDB item, as billed by
+     * DynamoDB, to an {@link ItemSize}.
+     *
+     * @param parser
+     *            A JsonParser positioned at the start of the target JSON object.
+     * @param size
+     *            Accumulator for the size of the item
+     * @return A map of AttributeValues that represents the JSON object.
+     * @throws JacksonConverterException
+     *             if the current token is not the start of an object or the object is too deep
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    Map<String, AttributeValue> jsonObjectToMap(JsonParser parser, ItemSize size) throws JacksonConverterException,
+        IOException;
+
     /**
      * Converts a list of AttributeValues to a JsonNode instance that represents the list.
      *
@@ -1,6 +1,8 @@
 package com.amazonaws.services.dynamodbv2.json.converter;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
@@ -8,7 +10,7 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 /**
  * Utility for transforming between Jackson JSON streaming representation and DynamoDB format.
  */
-public interface JacksonStreamReader {
+public interface JacksonStreamReader extends Closeable {
 
     /**
      * Looks for the beginning of the next JSON object in the JsonParser and generates a map of AttributeValues that
@@ -21,6 +23,24 @@ public interface JacksonStreamReader {
      */
     Map<String, AttributeValue> getNextItem() throws IOException;
 
+    /**
+     * Clears the provided batch and fills it with the next items from the JsonParser until either the item or the
+     * byte limit is reached. The size of an item is its DynamoDB size as computed by {@link ItemSize}. An item that
+     * does not fit into the current batch is held back and returned as the first item of the next batch or by the next call to
+     * {@link #getNextItem()}. A single item larger than the byte limit is returned in a batch of its own.
+     *
+     * @param batch
+     *            List to reuse for the batch. Any existing contents are removed.
+     * @param maxItems
+     *            Maximum number of items in the batch
+     * @param maxBytes
+     *            Maximum DynamoDB size of the batch in bytes
+     * @return The number of items in the batch. Zero if the end of stream is reached.
+     * @throws IOException
+     *             Error reading stream
+     */
+    int getNextBatch(List<Map<String, AttributeValue>> batch, int maxItems, long maxBytes) throws IOException;
+
     /**
      * Seeks for a field specified with the argument and advances the JsonParser to the value of the field.
      *
@@ -32,4 +52,24 @@ public interface JacksonStreamReader {
      */
     boolean seek(String fieldName) throws IOException;
 
+    /**
+     * Seeks for the value at a JSON path relative to the value at the current token and advances the JsonParser to
+     * it. Only fields at the nesting level given by the path are matched; all other subtrees are skipped without
+     * being tokenized into values. The path consists of an optional {@code $} for the current value, followed by
+     * field names separated by dots and array steps in brackets. An array step is either an index, which selects one
+     * element, or {@code *}, which must be the last step and leaves the JsonParser at the start of the array so that
+     * {@link #getNextItem()} returns its elements. For example, {@code sols[*]} and {@code $.images[0]} are valid
+     * paths.
+     *
+     * @param path
+     *            The JSON path of the value to seek
+     * @return True if the value is found. False, otherwise, in which case the position of the JsonParser is
+     *         undefined.
+     * @throws IOException
+     *             Error reading stream
+     * @throws IllegalArgumentException
+     *             The path is not valid
+     */
+    boolean seekPath(String path) throws IOException;
+
 }
@@ -0,0 +1,56 @@
+package com.amazonaws.services.dynamodbv2.json.converter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Utility for transforming DynamoDB items to a Jackson JSON streaming representation without building a JsonNode tree.
+ */
+public interface JacksonStreamWriter extends Closeable {
+
+    /**
+     * Flushes any buffered JSON content to the underlying target.
+     *
+     * @throws IOException
+     *             Error writing to the underlying target
+     */
+    void flush() throws IOException;
+
+    /**
+     * Writes a map of AttributeValues as a JSON object.
+     *
+     * @param item
+     *            A map of AttributeValues
+     * @throws IOException
+     *             Null item, unknown value type, item too deep, or error writing to the underlying target
+     */
+    void writeItem(Map<String, AttributeValue> item) throws IOException;
+
+    /**
+     * Writes a list of maps of AttributeValues as a JSON array of objects.
+     *
+     * @param items
+     *            A list of maps of AttributeValues
+     * @throws IOException
+     *             Null items, unknown value type, item too deep, or error writing to the underlying target
+     */
+    void writeItemList(List<Map<String, AttributeValue>> items) throws IOException;
+
+    /**
+     * Writes pages of maps of AttributeValues, such as the results of successive query or scan requests, as a single
+     * JSON array of objects. Pages are requested from the iterator only as the previous page has been written, so at
+     * most one page is held in memory at a time.
+     *
+     * @param pages
+     *            Iterator over pages of maps of AttributeValues
+     * @throws IOException
+     *             Null pages, unknown value type, item too deep, or error writing to the underlying target
+     */
+    void writeItemPages(Iterator<? extends Iterable<Map<String, AttributeValue>>> pages) throws IOException;
+
+}
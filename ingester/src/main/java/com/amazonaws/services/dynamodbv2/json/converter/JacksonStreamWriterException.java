@@ -0,0 +1,25 @@
+package com.amazonaws.services.dynamodbv2.json.converter;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+
+/**
+ * Exception occurred while transforming between representations.
+ */
+public class JacksonStreamWriterException extends JsonGenerationException {
+
+    /**
+     * Serial Version.
+     */
+    private static final long serialVersionUID = 3129465734521893507L;
+
+    /**
+     * Constructs a {@link JacksonStreamWriterException} with the provided message.
+     *
+     * @param message
+     *            Error message
+     */
+    public JacksonStreamWriterException(final String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * DynamoDB sizing rules for attribute names and values.
+ */
+final class AttributeSizes {
+    /**
+     * Size of a BOOL or NULL value.
+     */
+    static final int BOOLEAN_OR_NULL = 1;
+    /**
+     * Fixed overhead of an L or M value.
+     */
+    static final int DOCUMENT_OVERHEAD = 3;
+    /**
+     * Overhead of each element in an L or M value.
+     */
+    static final int ELEMENT_OVERHEAD = 1;
+
+    /**
+     * Gets the size of an N value. DynamoDB trims leading and trailing zeros and stores two significant digits per
+     * byte, plus one byte.
+     *
+     * @param number
+     *            String representation of the number
+     * @return Size in bytes
+     */
+    static int numberSize(final String number) {
+        int first = -1;
+        int last = -1;
+        int digits = 0;
+        final int length = number.length();
+        for (int i = 0; i < length; i++) {
+            final char c = number.charAt(i);
+            if (c == 'e' || c == 'E') {
+                break;
+            }
+            if (c >= '0' && c <= '9') {
+                if (c != '0') {
+                    if (first < 0) {
+                        first = digits;
+                    }
+                    last = digits;
+                }
+                digits++;
+            }
+        }
+        final int significantDigits = first < 0 ? 0 : last - first + 1;
+        return (significantDigits + 1) / 2 + 1;
+    }
+
+    /**
+     * Gets the size of an S value or attribute name, which is its UTF-8 encoded length.
+     *
+     * @param s
+     *            String value or attribute name
+     * @return Size in bytes
+     */
+    static int stringSize(final String s) {
+        final int length = s.length();
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the size of a value without the size of its elements. Elements of L and M values are accounted for as they
+     * are converted, so only the fixed document overhead and the per-element overhead are returned for them.
+     *
+     * @param av
+     *            DynamoDB value
+     * @return Size in bytes
+     */
+    static int valueSize(final AttributeValue av) {
+        if (av.getS() != null) {
+            return stringSize(av.getS());
+        }
+        if (av.getN() != null) {
+            return numberSize(av.getN());
+        }
+        if (av.getL() != null) {
+            return DOCUMENT_OVERHEAD + ELEMENT_OVERHEAD * av.getL().size();
+        }
+        if (av.getM() != null) {
+            return DOCUMENT_OVERHEAD + ELEMENT_OVERHEAD * av.getM().size();
+        }
+        return BOOLEAN_OR_NULL;
+    }
+
+    /**
+     * Private constructor for a static class.
+     */
+    private AttributeSizes() {
+    }
+}
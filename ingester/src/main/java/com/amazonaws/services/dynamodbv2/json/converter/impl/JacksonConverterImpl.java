@@ -1,15 +1,23 @@
 package com.amazonaws.services.dynamodbv2.json.converter.impl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import com.amazonaws.services.dynamodbv2.json.converter.AttributeProjection;
+import com.amazonaws.services.dynamodbv2.json.converter.ItemSize;
 import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverter;
 import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverterException;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -19,15 +27,178 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * Implementation of the {@link JacksonConverter}.
  */
 public class JacksonConverterImpl implements JacksonConverter {
+    /**
+     * Converts a range of a DynamoDB item list to JSON objects. Ranges larger than the parallel threshold are split in
+     * half and converted in parallel. Each converted object is stored at the index of its item, so the order of the
+     * list is kept when the results are merged.
+     */
+    private final class ItemListConversion extends RecursiveAction {
+        /**
+         * Generated serial version UID.
+         */
+        private static final long serialVersionUID = 3815442372869178634L;
+        /**
+         * DynamoDB items to convert.
+         */
+        private final List<Map<String, AttributeValue>> items;
+        /**
+         * Converted JSON objects, indexed like the items.
+         */
+        private final JsonNode[] results;
+        /**
+         * First index of the range (inclusive).
+         */
+        private final int from;
+        /**
+         * Last index of the range (exclusive).
+         */
+        private final int to;
+
+        /**
+         * Constructs an {@link ItemListConversion} for a range of the item list.
+         *
+         * @param items
+         *            DynamoDB items to convert
+         * @param results
+         *            Converted JSON objects, indexed like the items
+         * @param from
+         *            First index of the range (inclusive)
+         * @param to
+         *            Last index of the range (exclusive)
+         */
+        ItemListConversion(final List<Map<String, AttributeValue>> items, final JsonNode[] results, final int from,
+            final int to) {
+            this.items = items;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= parallelThreshold) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = mapToJsonObject(items.get(i), 0);
+                    } catch (final JacksonConverterException e) {
+                        throw new ItemListConversionException(e);
+                    }
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ItemListConversion(items, results, from, middle), new ItemListConversion(items,
+                    results, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Carries a {@link JacksonConverterException} out of an {@link ItemListConversion}, which cannot throw checked
+     * exceptions.
+     */
+    private static final class ItemListConversionException extends RuntimeException {
+        /**
+         * Generated serial version UID.
+         */
+        private static final long serialVersionUID = -6086337010523416514L;
+
+        /**
+         * Constructs an {@link ItemListConversionException} for the provided cause.
+         *
+         * @param cause
+         *            Exception thrown by the conversion
+         */
+        ItemListConversionException(final JacksonConverterException cause) {
+            super(cause);
+        }
+    }
+
     /**
      * Maximum JSON depth.
      */
     private static final int MAX_DEPTH = 50;
 
+    /**
+     * Cache of learned JSON object shapes. Null if shape caching is disabled.
+     */
+    private final ShapeCache shapeCache;
+    /**
+     * Table of canonical attribute names and String values. Null if canonicalization is disabled.
+     */
+    private final StringTable strings;
+    /**
+     * Pool for converting item lists in parallel. Null if parallel conversion is disabled.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Maximum number of items in a list that is converted sequentially.
+     */
+    private final int parallelThreshold;
+
     /**
      * Constructs a {@link JacksonConverterImpl}.
      */
     public JacksonConverterImpl() {
+        this(false);
+    }
+
+    /**
+     * Constructs a {@link JacksonConverterImpl} that optionally caches the shapes of the JSON objects it converts.
+     * With shape caching enabled, the field names of each distinct object shape are learned once. Later objects with
+     * the same shape are converted into pre-sized maps keyed by the canonical field name Strings of the shape. Objects
+     * with new shapes fall back to the generic conversion once the cache is full.
+     *
+     * @param cacheShapes
+     *            True to cache object shapes
+     */
+    public JacksonConverterImpl(final boolean cacheShapes) {
+        this(cacheShapes, false);
+    }
+
+    /**
+     * Constructs a {@link JacksonConverterImpl} that optionally caches object shapes and optionally canonicalizes the
+     * results of converting JSON to DynamoDB items. With canonicalization enabled, attribute names and short String
+     * values that repeat across items share one String instance from a bounded table. Every {@link AttributeValue} is
+     * still a new instance, so callers may modify the items they receive.
+     *
+     * @param cacheShapes
+     *            True to cache object shapes
+     * @param canonicalize
+     *            True to share repeated names and values between converted items
+     */
+    public JacksonConverterImpl(final boolean cacheShapes, final boolean canonicalize) {
+        shapeCache = cacheShapes ? new ShapeCache(ShapeCache.DEFAULT_MAX_SHAPES) : null;
+        strings = canonicalize ? new StringTable(StringTable.DEFAULT_SLOTS, StringTable.DEFAULT_MAX_LENGTH) : null;
+        pool = null;
+        parallelThreshold = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs a {@link JacksonConverterImpl} that converts large item lists in parallel. Lists with more items than
+     * the threshold are split recursively and the halves are converted as fork/join tasks in the provided pool. The
+     * order of the items is kept. Lists up to the threshold are converted sequentially on the calling thread.
+     *
+     * @param cacheShapes
+     *            True to cache object shapes
+     * @param pool
+     *            Pool for converting item lists in parallel
+     * @param parallelThreshold
+     *            Maximum number of items in a list, or a part of a list, that is converted sequentially
+     */
+    public JacksonConverterImpl(final boolean cacheShapes, final ForkJoinPool pool, final int parallelThreshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("ForkJoinPool cannot be null");
+        }
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be positive");
+        }
+        shapeCache = cacheShapes ? new ShapeCache(ShapeCache.DEFAULT_MAX_SHAPES) : null;
+        strings = null;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
     }
 
     /**
@@ -49,32 +220,107 @@ public class JacksonConverterImpl implements JacksonConverter {
      *
      * @param node
      *            The JSON to convert
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the value. Null if the size is not needed.
      * @param depth
      *            Current JSON depth
      * @return DynamoDB representation of the JsonNode
      * @throws JacksonConverterException
      *             Unknown JsonNode type or JSON is too deep
      */
-    private AttributeValue getAttributeValue(final JsonNode node, final int depth) throws JacksonConverterException {
+    private AttributeValue getAttributeValue(final JsonNode node, final AttributeProjection projection,
+        final ItemSize size, final int depth)
+        throws JacksonConverterException {
         assertDepth(depth);
+        final AttributeValue av;
         switch (node.asToken()) {
             case VALUE_STRING:
-                return new AttributeValue().withS(node.textValue());
+                av = new AttributeValue().withS(strings != null ? strings.canonicalize(node.textValue()) : node
+                    .textValue());
+                break;
             case VALUE_NUMBER_INT:
             case VALUE_NUMBER_FLOAT:
-                return new AttributeValue().withN(node.numberValue().toString());
+                av = new AttributeValue().withN(node.numberValue().toString());
+                break;
             case VALUE_TRUE:
             case VALUE_FALSE:
-                return new AttributeValue().withBOOL(node.booleanValue());
+                av = new AttributeValue().withBOOL(node.booleanValue());
+                break;
             case VALUE_NULL:
-                return new AttributeValue().withNULL(true);
+                av = new AttributeValue().withNULL(true);
+                break;
             case START_OBJECT:
-                return new AttributeValue().withM(jsonObjectToMap(node, depth));
+                av = new AttributeValue().withM(jsonObjectToMap(node, projection, size, depth));
+                break;
             case START_ARRAY:
-                return new AttributeValue().withL(jsonArrayToList(node, depth));
+                av = new AttributeValue().withL(jsonArrayToList(node, projection, size, depth));
+                break;
             default:
                 throw new JacksonConverterException("Unknown node type: " + node);
         }
+        if (size != null) {
+            size.add(AttributeSizes.valueSize(av));
+        }
+        return av;
+    }
+
+    /**
+     * Gets an DynamoDB representation of the value at the current token of a JsonParser.
+     *
+     * @param parser
+     *            JsonParser positioned at the value to convert
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the value. Null if the size is not needed.
+     * @param depth
+     *            Current JSON depth
+     * @return DynamoDB representation of the value
+     * @throws JacksonConverterException
+     *             Unknown token type or JSON is too deep
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    private AttributeValue getAttributeValue(final JsonParser parser, final AttributeProjection projection,
+        final ItemSize size, final int depth)
+        throws JacksonConverterException, IOException {
+        assertDepth(depth);
+        final JsonToken token = parser.getCurrentToken();
+        if (token == null) {
+            throw new JacksonConverterException("Unexpected end of JSON stream");
+        }
+        final AttributeValue av;
+        switch (token) {
+            case VALUE_STRING:
+                av = new AttributeValue().withS(strings != null ? strings.canonicalize(parser.getTextCharacters(),
+                    parser.getTextOffset(), parser.getTextLength()) : parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                av = new AttributeValue().withN(parser.getText());
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                av = new AttributeValue().withBOOL(parser.getBooleanValue());
+                break;
+            case VALUE_NULL:
+                av = new AttributeValue().withNULL(true);
+                break;
+            case START_OBJECT:
+                av = new AttributeValue().withM(jsonObjectToMap(parser, projection, size, depth));
+                break;
+            case START_ARRAY:
+                av = new AttributeValue().withL(jsonArrayToList(parser, projection, size, depth));
+                break;
+            default:
+                throw new JacksonConverterException("Unknown token type: " + token);
+        }
+        if (size != null) {
+            size.add(AttributeSizes.valueSize(av));
+        }
+        return av;
     }
 
     /**
@@ -93,17 +339,7 @@ public class JacksonConverterImpl implements JacksonConverter {
         if (av.getS() != null) {
             return JsonNodeFactory.instance.textNode(av.getS());
         } else if (av.getN() != null) {
-            try {
-                return JsonNodeFactory.instance.numberNode(Integer.parseInt(av.getN()));
-            } catch (final NumberFormatException e) {
-                // Not an integer
-                try {
-                    return JsonNodeFactory.instance.numberNode(Float.parseFloat(av.getN()));
-                } catch (final NumberFormatException e2) {
-                    // Not a number
-                    throw new JacksonConverterException(e.getMessage());
-                }
-            }
+            return NumberDecoder.decode(av.getN());
         } else if (av.getBOOL() != null) {
             return JsonNodeFactory.instance.booleanNode(av.getBOOL());
         } else if (av.getNULL() != null) {
@@ -124,8 +360,31 @@ public class JacksonConverterImpl implements JacksonConverter {
     public JsonNode itemListToJsonArray(final List<Map<String, AttributeValue>> items) throws JacksonConverterException {
         if (items != null) {
             final ArrayNode array = JsonNodeFactory.instance.arrayNode();
-            for (final Map<String, AttributeValue> item : items) {
-                array.add(mapToJsonObject(item, 0));
+            if (items.size() > parallelThreshold) {
+                // Tasks access the items by index
+                final List<Map<String, AttributeValue>> indexed = items instanceof RandomAccess ? items
+                    : new ArrayList<>(items);
+                final JsonNode[] results = new JsonNode[indexed.size()];
+                try {
+                    pool.invoke(new ItemListConversion(indexed, results, 0, results.length));
+                } catch (final ItemListConversionException e) {
+                    // The pool may rethrow a copy of the exception that wraps the original
+                    Throwable cause = e.getCause();
+                    while (cause != null && !(cause instanceof JacksonConverterException)) {
+                        cause = cause.getCause();
+                    }
+                    if (cause == null) {
+                        throw e;
+                    }
+                    throw (JacksonConverterException) cause;
+                }
+                for (final JsonNode result : results) {
+                    array.add(result);
+                }
+            } else {
+                for (final Map<String, AttributeValue> item : items) {
+                    array.add(mapToJsonObject(item, 0));
+                }
             }
             return array;
         }
@@ -137,7 +396,7 @@ public class JacksonConverterImpl implements JacksonConverter {
      */
     @Override
     public List<AttributeValue> jsonArrayToList(final JsonNode node) throws JacksonConverterException {
-        return jsonArrayToList(node, 0);
+        return jsonArrayToList(node, AttributeProjection.ALL, null, 0);
     }
 
     /**
@@ -145,32 +404,105 @@ public class JacksonConverterImpl implements JacksonConverter {
      *
      * @param node
      *            Array node to convert
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the elements. Null if the size is not needed.
      * @param depth
      *            Current JSON depth
      * @return DynamoDB list representation of the array node
      * @throws JacksonConverterException
      *             JsonNode is not an array or depth is too great
      */
-    private List<AttributeValue> jsonArrayToList(final JsonNode node, final int depth) throws JacksonConverterException {
+    private List<AttributeValue> jsonArrayToList(final JsonNode node, final AttributeProjection projection,
+        final ItemSize size, final int depth)
+        throws JacksonConverterException {
         assertDepth(depth);
         if (node != null && node.isArray()) {
             final List<AttributeValue> result = new ArrayList<AttributeValue>();
             final Iterator<JsonNode> children = node.elements();
             while (children.hasNext()) {
                 final JsonNode child = children.next();
-                result.add(getAttributeValue(child, depth));
+                result.add(getAttributeValue(child, projection, size, depth + 1));
             }
             return result;
         }
         throw new JacksonConverterException("Expected JSON array, but received " + node);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AttributeValue> jsonArrayToList(final JsonParser parser) throws JacksonConverterException,
+        IOException {
+        return jsonArrayToList(parser, AttributeProjection.ALL, null, 0);
+    }
+
+    /**
+     * Helper method to convert the JSON array at the current token of a JsonParser to a DynamoDB list.
+     *
+     * @param parser
+     *            JsonParser positioned at the start of the array
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the elements. Null if the size is not needed.
+     * @param depth
+     *            Current JSON depth
+     * @return DynamoDB list representation of the array
+     * @throws JacksonConverterException
+     *             Current token is not the start of an array or depth is too great
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    private List<AttributeValue> jsonArrayToList(final JsonParser parser, final AttributeProjection projection,
+        final ItemSize size, final int depth)
+        throws JacksonConverterException, IOException {
+        assertDepth(depth);
+        if (parser != null) {
+            if (parser.getCurrentToken() == null) {
+                parser.nextToken();
+            }
+            if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                final List<AttributeValue> result = new ArrayList<AttributeValue>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    result.add(getAttributeValue(parser, projection, size, depth + 1));
+                }
+                return result;
+            }
+            throw new JacksonConverterException("Expected JSON array, but received " + parser.getCurrentToken());
+        }
+        throw new JacksonConverterException("JsonParser cannot be null");
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Map<String, AttributeValue> jsonObjectToMap(final JsonNode node) throws JacksonConverterException {
-        return jsonObjectToMap(node, 0);
+        return jsonObjectToMap(node, AttributeProjection.ALL, null, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, AttributeValue> jsonObjectToMap(final JsonNode node, final AttributeProjection projection,
+        final ItemSize size) throws JacksonConverterException {
+        if (projection == null) {
+            throw new JacksonConverterException("AttributeProjection cannot be null");
+        }
+        return jsonObjectToMap(node, projection, size, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, AttributeValue> jsonObjectToMap(final JsonNode node, final ItemSize size)
+        throws JacksonConverterException {
+        return jsonObjectToMap(node, AttributeProjection.ALL, size, 0);
     }
 
     /**
@@ -178,27 +510,153 @@ public class JacksonConverterImpl implements JacksonConverter {
      *
      * @param node
      *            JSON object
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the fields. Null if the size is not needed.
      * @param depth
      *            Current JSON depth
      * @return DynamoDB object representation of JSON
      * @throws JacksonConverterException
      *             JSON is not an object or depth is too great
      */
-    private Map<String, AttributeValue> jsonObjectToMap(final JsonNode node, final int depth)
+    private Map<String, AttributeValue> jsonObjectToMap(final JsonNode node, final AttributeProjection projection,
+        final ItemSize size, final int depth)
         throws JacksonConverterException {
         assertDepth(depth);
         if (node != null && node.isObject()) {
+            final ObjectShape shape = shapeCache != null && projection.isAll() ? shapeCache.getShape(node) : null;
+            if (shape != null) {
+                return jsonObjectToMap(node, shape, size, depth);
+            }
             final Map<String, AttributeValue> result = new HashMap<String, AttributeValue>();
             final Iterator<String> keys = node.fieldNames();
             while (keys.hasNext()) {
-                final String key = keys.next();
-                result.put(key, getAttributeValue(node.get(key), depth + 1));
+                final String name = keys.next();
+                final String key = strings != null ? strings.canonicalize(name) : name;
+                final AttributeProjection fieldProjection = projection.getProjection(key);
+                if (fieldProjection == null) {
+                    continue;
+                }
+                if (size != null) {
+                    size.add(AttributeSizes.stringSize(key));
+                }
+                result.put(key, getAttributeValue(node.get(name), fieldProjection, size, depth + 1));
             }
             return result;
         }
         throw new JacksonConverterException("Expected JSON Object, but received " + node);
     }
 
+    /**
+     * Transforms a JSON object with a known shape to a DynamoDB object. Field values are read in iteration order and
+     * paired with the canonical field names of the shape.
+     *
+     * @param node
+     *            JSON object
+     * @param shape
+     *            Shape of the JSON object
+     * @param size
+     *            Accumulator for the DynamoDB size of the fields. Null if the size is not needed.
+     * @param depth
+     *            Current JSON depth
+     * @return DynamoDB object representation of JSON
+     * @throws JacksonConverterException
+     *             Depth is too great
+     */
+    private Map<String, AttributeValue> jsonObjectToMap(final JsonNode node, final ObjectShape shape,
+        final ItemSize size, final int depth) throws JacksonConverterException {
+        if (size != null) {
+            size.add(shape.getFieldNameBytes());
+        }
+        final String[] fieldNames = shape.getFieldNames();
+        final Map<String, AttributeValue> result = new HashMap<String, AttributeValue>(shape.getCapacity());
+        final Iterator<JsonNode> values = node.elements();
+        for (final String fieldName : fieldNames) {
+            result.put(fieldName, getAttributeValue(values.next(), AttributeProjection.ALL, size, depth + 1));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, AttributeValue> jsonObjectToMap(final JsonParser parser) throws JacksonConverterException,
+        IOException {
+        return jsonObjectToMap(parser, AttributeProjection.ALL, null, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, AttributeValue> jsonObjectToMap(final JsonParser parser, final AttributeProjection projection,
+        final ItemSize size) throws JacksonConverterException, IOException {
+        if (projection == null) {
+            throw new JacksonConverterException("AttributeProjection cannot be null");
+        }
+        return jsonObjectToMap(parser, projection, size, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, AttributeValue> jsonObjectToMap(final JsonParser parser, final ItemSize size)
+        throws JacksonConverterException, IOException {
+        return jsonObjectToMap(parser, AttributeProjection.ALL, size, 0);
+    }
+
+    /**
+     * Transforms the JSON object at the current token of a JsonParser to a DynamoDB object.
+     *
+     * @param parser
+     *            JsonParser positioned at the start of the object
+     * @param projection
+     *            Projection of the fields of JSON objects
+     * @param size
+     *            Accumulator for the DynamoDB size of the fields. Null if the size is not needed.
+     * @param depth
+     *            Current JSON depth
+     * @return DynamoDB object representation of JSON
+     * @throws JacksonConverterException
+     *             Current token is not the start of an object or depth is too great
+     * @throws IOException
+     *             Error reading the underlying stream
+     */
+    private Map<String, AttributeValue> jsonObjectToMap(final JsonParser parser,
+        final AttributeProjection projection, final ItemSize size, final int depth)
+        throws JacksonConverterException, IOException {
+        assertDepth(depth);
+        if (parser != null) {
+            if (parser.getCurrentToken() == null) {
+                parser.nextToken();
+            }
+            if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                final Map<String, AttributeValue> result = new HashMap<String, AttributeValue>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String key = strings != null ? strings.canonicalize(parser.getCurrentName()) : parser
+                        .getCurrentName();
+                    final AttributeProjection fieldProjection = projection.getProjection(key);
+                    parser.nextToken();
+                    if (fieldProjection == null) {
+                        // Skip the value without converting it
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (size != null) {
+                        size.add(AttributeSizes.stringSize(key));
+                    }
+                    result.put(key, getAttributeValue(parser, fieldProjection, size, depth + 1));
+                }
+                return result;
+            }
+            throw new JacksonConverterException("Expected JSON Object, but received " + parser.getCurrentToken());
+        }
+        throw new JacksonConverterException("JsonParser cannot be null");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,14 +1,20 @@
 package com.amazonaws.services.dynamodbv2.json.converter.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
+import com.amazonaws.services.dynamodbv2.json.converter.AttributeProjection;
+import com.amazonaws.services.dynamodbv2.json.converter.ItemSize;
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverter;
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverterException;
 import com.amazonaws.services.dynamodbv2.json.converter.JacksonStreamReader;
 import com.amazonaws.services.dynamodbv2.json.converter.JacksonStreamReaderException;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
@@ -17,10 +23,59 @@ import com.fasterxml.jackson.core.JsonToken;
  * Implementation of JacksonStreamReader transformer.
  */
 public class JacksonStreamReaderImpl implements JacksonStreamReader {
+    /**
+     * Optional first step of a JSON path that refers to the current value.
+     */
+    private static final String ROOT = "$";
+    /**
+     * Array step of a JSON path that refers to all elements of an array.
+     */
+    private static final String WILDCARD_STEP = "[*]";
+    /**
+     * Pattern for array steps of a JSON path that refer to one element of an array.
+     */
+    private static final Pattern INDEX_STEP = Pattern.compile("\\[[0-9]+\\]");
+    /**
+     * Transformer for converting the token stream to DynamoDB items.
+     */
+    private static final JacksonConverter CONVERTER = new JacksonConverterImpl();
+    /**
+     * Factory for parsers over memory-mapped files.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
     /**
      * JsonParser for getting tokens.
      */
     private final JsonParser jp;
+    /**
+     * Projection that selects the attributes of each item.
+     */
+    private final AttributeProjection projection;
+    /**
+     * Item read from the JsonParser that did not fit into the previous batch.
+     */
+    private Map<String, AttributeValue> pendingItem;
+    /**
+     * DynamoDB size in bytes of {@link #pendingItem}.
+     */
+    private long pendingItemSize;
+
+    /**
+     * Constructs a {@link JacksonStreamReaderImpl} that reads a local JSON file, or all files of a directory in name
+     * order, through memory-mapped regions. Each file may hold a JSON array of items or a sequence of items, such as
+     * newline-delimited JSON. The files are released when the reader is closed.
+     *
+     * @param source
+     *            File, or directory whose files are read in name order
+     * @param projection
+     *            Projection that selects the attributes of each item
+     * @throws IOException
+     *             The source cannot be read or error getting token
+     * @see MappedFileInputStream
+     */
+    public JacksonStreamReaderImpl(final File source, final AttributeProjection projection) throws IOException {
+        this(JSON_FACTORY.createParser(new MappedFileInputStream(source)), projection);
+    }
 
     /**
      * Constructs a {@link JacksonStreamReaderImpl} with the provided {@link JsonParser}.
@@ -31,113 +86,137 @@ public class JacksonStreamReaderImpl implements JacksonStreamReader {
      *             Null JsonParser or error getting token
      */
     public JacksonStreamReaderImpl(final JsonParser jp) throws IOException {
+        this(jp, AttributeProjection.ALL);
+    }
+
+    /**
+     * Constructs a {@link JacksonStreamReaderImpl} with the provided {@link JsonParser} that converts only the
+     * attributes of each item selected by an {@link AttributeProjection}. The values of the other attributes are
+     * skipped at the token level and never converted.
+     *
+     * @param jp
+     *            JsonParser from which to get tokens
+     * @param projection
+     *            Projection that selects the attributes of each item
+     * @throws IOException
+     *             Null JsonParser or projection, or error getting token
+     */
+    public JacksonStreamReaderImpl(final JsonParser jp, final AttributeProjection projection) throws IOException {
         if (jp == null) {
             throw new JacksonStreamReaderException("JsonParser cannot be null", JsonLocation.NA);
         }
+        if (projection == null) {
+            throw new JacksonStreamReaderException("AttributeProjection cannot be null", JsonLocation.NA);
+        }
         this.jp = jp;
+        this.projection = projection;
         if (jp.getCurrentToken() == null) {
             jp.nextToken();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        jp.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNextBatch(final List<Map<String, AttributeValue>> batch, final int maxItems, final long maxBytes)
+        throws IOException {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch cannot be null");
+        }
+        if (maxItems < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Batch limits must be positive");
+        }
+        batch.clear();
+        final ItemSize size = new ItemSize();
+        long batchSize = 0;
+        while (batch.size() < maxItems) {
+            final Map<String, AttributeValue> item;
+            final long itemSize;
+            if (pendingItem != null) {
+                item = pendingItem;
+                itemSize = pendingItemSize;
+                pendingItem = null;
+            } else {
+                size.reset();
+                item = getNextItem(size);
+                if (item == null) {
+                    break;
+                }
+                itemSize = size.getBytes();
+            }
+            if (!batch.isEmpty() && batchSize + itemSize > maxBytes) {
+                pendingItem = item;
+                pendingItemSize = itemSize;
+                break;
+            }
+            batch.add(item);
+            batchSize += itemSize;
+        }
+        return batch.size();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Map<String, AttributeValue> getNextItem() throws IOException {
+        return getNextItem(null);
+    }
+
+    /**
+     * Gets the next item from the JsonParser and adds its DynamoDB size to an {@link ItemSize}.
+     *
+     * @param size
+     *            Accumulator for the size of the item. Null if the size is not needed.
+     * @return DynamoDB representation of the next item. Null if the end of stream is reached.
+     * @throws IOException
+     *             Error getting token or unknown value type
+     */
+    private Map<String, AttributeValue> getNextItem(final ItemSize size) throws IOException {
+        if (pendingItem != null) {
+            final Map<String, AttributeValue> item = pendingItem;
+            pendingItem = null;
+            return item;
+        }
         if (isEndReached()) {
             return null;
         }
 
         if (isObject()) {
-            return getNextMap();
+            return getNextMap(size);
         } else if (isArray() || isEndOfArray() || isEndOfObject()) {
             jp.nextToken();
-            return getNextItem();
+            return getNextItem(size);
         } else {
             throw new JacksonStreamReaderException("The start of next item needs to be an object, but was "
                 + jp.getCurrentToken(), jp.getCurrentLocation());
         }
     }
 
-    /**
-     * Gets the next list from the JsonParser in a DynamoDB representation.
-     *
-     * @return DynamoDB representation of the next list from the JsonParser
-     * @throws IOException
-     *             Error getting token or unknown value type.
-     */
-    private List<AttributeValue> getNextList() throws IOException {
-        final List<AttributeValue> list = new ArrayList<AttributeValue>();
-        while (JsonToken.END_ARRAY != jp.nextToken()) {
-            switch (jp.getCurrentToken()) {
-                case VALUE_STRING:
-                    list.add(new AttributeValue().withS(jp.getText()));
-                    break;
-                case VALUE_NUMBER_INT:
-                case VALUE_NUMBER_FLOAT:
-                    list.add(new AttributeValue().withN(jp.getValueAsString()));
-                    break;
-                case VALUE_TRUE:
-                case VALUE_FALSE:
-                    list.add(new AttributeValue().withBOOL(jp.getBooleanValue()));
-                    break;
-                case VALUE_NULL:
-                    list.add(new AttributeValue().withNULL(true));
-                    break;
-                case START_OBJECT:
-                    list.add(new AttributeValue().withM(getNextMap()));
-                    break;
-                case START_ARRAY:
-                    list.add(new AttributeValue().withL(getNextList()));
-                    break;
-                default:
-                    throw new JacksonStreamReaderException("Unknown value type: " + jp.getCurrentToken().name(),
-                        jp.getCurrentLocation());
-            }
-        }
-        return list;
-    }
-
     /**
      * Gets the next map from the JsonParser in a DynamoDB representation.
      *
+     * @param size
+     *            Accumulator for the size of the map. Null if the size is not needed.
      * @return DynamoDB representation of the next map from the JsonParser
      * @throws IOException
      *             Error getting token or unknown value type
      */
-    private Map<String, AttributeValue> getNextMap() throws IOException {
-        final Map<String, AttributeValue> map = new HashMap<String, AttributeValue>();
-        while (JsonToken.END_OBJECT != jp.nextToken()) {
-            switch (jp.getCurrentToken()) {
-                case FIELD_NAME:
-                    continue;
-                case VALUE_STRING:
-                    map.put(jp.getCurrentName(), new AttributeValue().withS(jp.getText()));
-                    break;
-                case VALUE_NUMBER_INT:
-                case VALUE_NUMBER_FLOAT:
-                    map.put(jp.getCurrentName(), new AttributeValue().withN(jp.getValueAsString()));
-                    break;
-                case VALUE_TRUE:
-                case VALUE_FALSE:
-                    map.put(jp.getCurrentName(), new AttributeValue().withBOOL(jp.getBooleanValue()));
-                    break;
-                case VALUE_NULL:
-                    map.put(jp.getCurrentName(), new AttributeValue().withNULL(true));
-                    break;
-                case START_OBJECT:
-                    map.put(jp.getCurrentName(), new AttributeValue().withM(getNextMap()));
-                    break;
-                case START_ARRAY:
-                    map.put(jp.getCurrentName(), new AttributeValue().withL(getNextList()));
-                    break;
-                default:
-                    throw new JacksonStreamReaderException("Unknown value type: " + jp.getCurrentToken().name(),
-                        jp.getCurrentLocation());
-            }
+    private Map<String, AttributeValue> getNextMap(final ItemSize size) throws IOException {
+        try {
+            return CONVERTER.jsonObjectToMap(jp, projection, size);
+        } catch (final JacksonConverterException e) {
+            throw new JacksonStreamReaderException(e.getMessage(), jp.getCurrentLocation());
         }
-        return map;
     }
 
     /**
@@ -185,6 +264,57 @@ public class JacksonStreamReaderImpl implements JacksonStreamReader {
         return jp.getCurrentToken() == JsonToken.START_OBJECT;
     }
 
+    /**
+     * Splits a JSON path into field name steps and array steps. Array steps keep their brackets.
+     *
+     * @param path
+     *            JSON path
+     * @return Steps of the path
+     * @throws IllegalArgumentException
+     *             The path is not valid
+     */
+    private static List<String> parsePath(final String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        final List<String> steps = new ArrayList<>();
+        final int length = path.length();
+        int i = path.startsWith(ROOT) ? ROOT.length() : 0;
+        boolean first = i == 0;
+        while (i < length) {
+            final char c = path.charAt(i);
+            if (c == '[') {
+                final int end = path.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed array step in path: " + path);
+                }
+                final String step = path.substring(i, end + 1);
+                if (!step.equals(WILDCARD_STEP) && !INDEX_STEP.matcher(step).matches()) {
+                    throw new IllegalArgumentException("Invalid array step " + step + " in path: " + path);
+                }
+                steps.add(step);
+                i = end + 1;
+            } else {
+                if (c == '.') {
+                    i++;
+                } else if (!first) {
+                    throw new IllegalArgumentException("Expected '.' or '[' at index " + i + " of path: " + path);
+                }
+                int end = i;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i) {
+                    throw new IllegalArgumentException("Empty field name at index " + i + " of path: " + path);
+                }
+                steps.add(path.substring(i, end));
+                i = end;
+            }
+            first = false;
+        }
+        return steps;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -202,4 +332,79 @@ public class JacksonStreamReaderImpl implements JacksonStreamReader {
         } while (!isEndReached());
         return false;
     }
+
+    /**
+     * Advances the JsonParser from the start of an object to the value of one of its fields. Values of other fields
+     * are skipped.
+     *
+     * @param fieldName
+     *            Name of the field
+     * @return True if the current token is the start of an object that contains the field
+     * @throws IOException
+     *             Error reading stream
+     */
+    private boolean seekField(final String fieldName) throws IOException {
+        if (!isObject()) {
+            return false;
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final boolean matches = fieldName.equals(jp.getCurrentName());
+            jp.nextToken();
+            if (matches) {
+                return true;
+            }
+            jp.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Advances the JsonParser from the start of an array to one of its elements. Preceding elements are skipped.
+     *
+     * @param index
+     *            Index of the element
+     * @return True if the current token is the start of an array that contains the element
+     * @throws IOException
+     *             Error reading stream
+     */
+    private boolean seekIndex(final int index) throws IOException {
+        if (!isArray()) {
+            return false;
+        }
+        for (int i = 0; i <= index; i++) {
+            if (jp.nextToken() == JsonToken.END_ARRAY) {
+                return false;
+            }
+            if (i < index) {
+                jp.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean seekPath(final String path) throws IOException {
+        final List<String> steps = parsePath(path);
+        for (int i = 0; i < steps.size(); i++) {
+            final String step = steps.get(i);
+            final boolean found;
+            if (step.equals(WILDCARD_STEP)) {
+                if (i != steps.size() - 1) {
+                    throw new IllegalArgumentException("Wildcard must be the last step of path: " + path);
+                }
+                found = isArray();
+            } else if (step.charAt(0) == '[') {
+                found = seekIndex(Integer.parseInt(step.substring(1, step.length() - 1)));
+            } else {
+                found = seekField(step);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
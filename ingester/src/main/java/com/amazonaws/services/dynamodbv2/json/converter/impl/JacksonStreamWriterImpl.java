@@ -0,0 +1,213 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonStreamWriter;
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonStreamWriterException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Implementation of JacksonStreamWriter transformer.
+ */
+public class JacksonStreamWriterImpl implements JacksonStreamWriter {
+    /**
+     * Maximum JSON depth.
+     */
+    private static final int MAX_DEPTH = 50;
+    /**
+     * Factory for creating JsonGenerators on top of output streams.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * JsonGenerator for writing tokens.
+     */
+    private final JsonGenerator jg;
+
+    /**
+     * Constructs a {@link JacksonStreamWriterImpl} with the provided {@link JsonGenerator}.
+     *
+     * @param jg
+     *            JsonGenerator to which tokens are written
+     * @throws IOException
+     *             Null JsonGenerator
+     */
+    public JacksonStreamWriterImpl(final JsonGenerator jg) throws IOException {
+        if (jg == null) {
+            throw new JacksonStreamWriterException("JsonGenerator cannot be null");
+        }
+        this.jg = jg;
+    }
+
+    /**
+     * Constructs a {@link JacksonStreamWriterImpl} that writes UTF-8 encoded JSON to the provided {@link OutputStream}.
+     *
+     * @param out
+     *            OutputStream to which JSON is written
+     * @throws IOException
+     *             Null OutputStream or error creating the JsonGenerator
+     */
+    public JacksonStreamWriterImpl(final OutputStream out) throws IOException {
+        if (out == null) {
+            throw new JacksonStreamWriterException("OutputStream cannot be null");
+        }
+        jg = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+    }
+
+    /**
+     * Asserts the depth is not greater than {@link #MAX_DEPTH}.
+     *
+     * @param depth
+     *            Current JSON depth
+     * @throws JacksonStreamWriterException
+     *             Depth is greater than {@link #MAX_DEPTH}
+     */
+    private void assertDepth(final int depth) throws JacksonStreamWriterException {
+        if (depth > MAX_DEPTH) {
+            throw new JacksonStreamWriterException("Max depth reached. The object/array has too much depth.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        jg.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        jg.flush();
+    }
+
+    /**
+     * Writes a DynamoDB attribute as a JSON value.
+     *
+     * @param av
+     *            DynamoDB attribute
+     * @param depth
+     *            Current JSON depth
+     * @throws IOException
+     *             Unknown DynamoDB type, JSON is too deep, or error writing
+     */
+    private void writeAttributeValue(final AttributeValue av, final int depth) throws IOException {
+        assertDepth(depth);
+        if (av.getS() != null) {
+            jg.writeString(av.getS());
+        } else if (av.getN() != null) {
+            jg.writeNumber(av.getN());
+        } else if (av.getBOOL() != null) {
+            jg.writeBoolean(av.getBOOL());
+        } else if (av.getNULL() != null) {
+            jg.writeNull();
+        } else if (av.getL() != null) {
+            writeList(av.getL(), depth);
+        } else if (av.getM() != null) {
+            writeMap(av.getM(), depth);
+        } else {
+            throw new JacksonStreamWriterException("Unknown type value " + av);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeItem(final Map<String, AttributeValue> item) throws IOException {
+        writeMap(item, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeItemList(final List<Map<String, AttributeValue>> items) throws IOException {
+        if (items == null) {
+            throw new JacksonStreamWriterException("Items cannot be null");
+        }
+        jg.writeStartArray();
+        for (final Map<String, AttributeValue> item : items) {
+            writeMap(item, 0);
+        }
+        jg.writeEndArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeItemPages(final Iterator<? extends Iterable<Map<String, AttributeValue>>> pages)
+        throws IOException {
+        if (pages == null) {
+            throw new JacksonStreamWriterException("Pages cannot be null");
+        }
+        jg.writeStartArray();
+        while (pages.hasNext()) {
+            final Iterable<Map<String, AttributeValue>> page = pages.next();
+            if (page == null) {
+                throw new JacksonStreamWriterException("Page cannot be null");
+            }
+            for (final Map<String, AttributeValue> item : page) {
+                writeMap(item, 0);
+            }
+        }
+        jg.writeEndArray();
+    }
+
+    /**
+     * Writes a DynamoDB list as a JSON array.
+     *
+     * @param list
+     *            DynamoDB list
+     * @param depth
+     *            Current JSON depth
+     * @throws IOException
+     *             Null DynamoDB list, JSON too deep, or error writing
+     */
+    private void writeList(final List<AttributeValue> list, final int depth) throws IOException {
+        assertDepth(depth);
+        if (list == null) {
+            throw new JacksonStreamWriterException("Item cannot be null");
+        }
+        jg.writeStartArray();
+        for (final AttributeValue value : list) {
+            writeAttributeValue(value, depth + 1);
+        }
+        jg.writeEndArray();
+    }
+
+    /**
+     * Writes a DynamoDB object as a JSON object.
+     *
+     * @param map
+     *            DynamoDB object
+     * @param depth
+     *            Current JSON depth
+     * @throws IOException
+     *             Null DynamoDB object, JSON too deep, or error writing
+     */
+    private void writeMap(final Map<String, AttributeValue> map, final int depth) throws IOException {
+        assertDepth(depth);
+        if (map == null) {
+            throw new JacksonStreamWriterException("Item cannot be null");
+        }
+        jg.writeStartObject();
+        for (final Entry<String, AttributeValue> entry : map.entrySet()) {
+            jg.writeFieldName(entry.getKey());
+            writeAttributeValue(entry.getValue(), depth + 1);
+        }
+        jg.writeEndObject();
+    }
+}
@@ -0,0 +1,206 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * InputStream that reads a local file, or all files of a directory in name order, through read-only memory-mapped
+ * regions. Bytes are copied directly from the page cache into the caller's buffer, which makes it a cheap source for
+ * Jackson's byte-based parser when bulk loading large JSON array or newline-delimited JSON dumps. Files are mapped one
+ * region at a time, so files larger than 2 GB are supported. A newline is inserted between consecutive files so that
+ * the last value of one file cannot run into the first value of the next.
+ */
+public class MappedFileInputStream extends InputStream {
+    /**
+     * Default size of a mapped region in bytes.
+     */
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024; // 64 MB
+    /**
+     * Separator inserted between consecutive files.
+     */
+    private static final byte SEPARATOR = '\n';
+
+    /**
+     * Gets the files to read from a file or directory.
+     *
+     * @param source
+     *            File or directory
+     * @return Files to read in order
+     * @throws IOException
+     *             The source does not exist or the directory cannot be listed
+     */
+    private static List<File> listFiles(final File source) throws IOException {
+        if (source == null) {
+            throw new IOException("Source cannot be null");
+        }
+        if (source.isFile()) {
+            return Collections.singletonList(source);
+        }
+        final File[] entries = source.listFiles();
+        if (entries == null) {
+            throw new IOException("Cannot read " + source);
+        }
+        Arrays.sort(entries);
+        final List<File> files = new ArrayList<>();
+        for (final File entry : entries) {
+            if (entry.isFile()) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Files to read in order.
+     */
+    private final List<File> files;
+    /**
+     * Size of a mapped region in bytes.
+     */
+    private final int regionSize;
+    /**
+     * Index of the next file to open.
+     */
+    private int nextFile;
+    /**
+     * Channel of the current file. Null if no file is open.
+     */
+    private FileChannel channel;
+    /**
+     * Offset in the current file of the next region to map.
+     */
+    private long position;
+    /**
+     * Current region, or the separator between files. Null before the first read.
+     */
+    private ByteBuffer region;
+    /**
+     * True once the stream is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a {@link MappedFileInputStream} for a file or directory with the {@link #DEFAULT_REGION_SIZE}.
+     *
+     * @param source
+     *            File, or directory whose files are read in name order
+     * @throws IOException
+     *             The source does not exist or the directory cannot be listed
+     */
+    public MappedFileInputStream(final File source) throws IOException {
+        this(source, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Constructs a {@link MappedFileInputStream} for a file or directory.
+     *
+     * @param source
+     *            File, or directory whose files are read in name order
+     * @param regionSize
+     *            Size of a mapped region in bytes. Each region is a separate mapping that is only released once it is
+     *            garbage collected, so regions should be large compared to the page size.
+     * @throws IOException
+     *             The source does not exist or the directory cannot be listed
+     */
+    public MappedFileInputStream(final File source, final int regionSize) throws IOException {
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("Region size must be positive");
+        }
+        files = listFiles(source);
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException {
+        return region == null || closed ? 0 : region.remaining();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        region = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Makes sure the current region has remaining bytes by mapping the next region, moving on to the next file, or
+     * returning the separator between files.
+     *
+     * @return True if bytes remain, false if all files are read
+     * @throws IOException
+     *             Error opening or mapping a file
+     */
+    private boolean ensureRegion() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (region == null || !region.hasRemaining()) {
+            if (channel != null && position < channel.size()) {
+                final long length = Math.min(regionSize, channel.size() - position);
+                region = channel.map(MapMode.READ_ONLY, position, length);
+                position += length;
+            } else {
+                final boolean separate = channel != null;
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                if (nextFile >= files.size()) {
+                    return false;
+                }
+                channel = FileChannel.open(files.get(nextFile++).toPath(), StandardOpenOption.READ);
+                position = 0;
+                region = separate ? ByteBuffer.wrap(new byte[] {SEPARATOR}) : null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        if (!ensureRegion()) {
+            return -1;
+        }
+        return region.get() & 0xff;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureRegion()) {
+            return -1;
+        }
+        final int n = Math.min(len, region.remaining());
+        region.get(b, off, n);
+        return n;
+    }
+}
@@ -0,0 +1,132 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverterException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * Decodes the String representation of a DynamoDB number to the narrowest JsonNode that holds the value without loss
+ * of precision. The String is classified in a single pass without relying on NumberFormatExceptions:
+ * <ul>
+ * <li>Integers that fit into an int or a long become IntNodes or LongNodes, larger integers become BigIntegerNodes.</li>
+ * <li>Decimals with at most {@link #MAX_DOUBLE_DIGITS} significant digits become DoubleNodes, which round-trip
+ * exactly. All other decimals become DecimalNodes.</li>
+ * </ul>
+ */
+final class NumberDecoder {
+    /**
+     * Maximum number of decimal digits that are accumulated in a long without overflow.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+    /**
+     * Maximum number of significant decimal digits that a double represents exactly.
+     */
+    private static final int MAX_DOUBLE_DIGITS = 15;
+    /**
+     * Maximum absolute decimal exponent that is decoded as a double.
+     */
+    private static final int MAX_DOUBLE_EXPONENT = 300;
+    /**
+     * Bit length of the largest long value.
+     */
+    private static final int LONG_BIT_LENGTH = 63;
+
+    /**
+     * Decodes a DynamoDB number.
+     *
+     * @param number
+     *            String representation of a DynamoDB number
+     * @return JsonNode representation of the number
+     * @throws JacksonConverterException
+     *             The String is not a valid number
+     */
+    static JsonNode decode(final String number) throws JacksonConverterException {
+        final int length = number.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (number.charAt(i) == '-' || number.charAt(i) == '+')) {
+            negative = number.charAt(i) == '-';
+            i++;
+        }
+        // Integer part and fraction: count digits, skipping leading zeros for the significant digit count
+        long value = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        boolean decimal = false;
+        for (; i < length; i++) {
+            final char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (significantDigits > 0 || c != '0') {
+                    significantDigits++;
+                    if (!decimal && significantDigits <= MAX_LONG_DIGITS) {
+                        value = value * 10 + (c - '0');
+                    }
+                }
+            } else if (c == '.' && !decimal) {
+                decimal = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            throw new JacksonConverterException("Invalid number: " + number);
+        }
+        // Exponent
+        int exponent = 0;
+        if (i < length && (number.charAt(i) == 'e' || number.charAt(i) == 'E')) {
+            decimal = true;
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (number.charAt(i) == '-' || number.charAt(i) == '+')) {
+                negativeExponent = number.charAt(i) == '-';
+                i++;
+            }
+            final int exponentStart = i;
+            for (; i < length && number.charAt(i) >= '0' && number.charAt(i) <= '9'; i++) {
+                if (exponent <= MAX_DOUBLE_EXPONENT) {
+                    exponent = exponent * 10 + (number.charAt(i) - '0');
+                }
+            }
+            if (i == exponentStart) {
+                throw new JacksonConverterException("Invalid number: " + number);
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != length) {
+            throw new JacksonConverterException("Invalid number: " + number);
+        }
+
+        if (decimal) {
+            if (significantDigits <= MAX_DOUBLE_DIGITS && Math.abs(exponent) <= MAX_DOUBLE_EXPONENT) {
+                return JsonNodeFactory.instance.numberNode(Double.parseDouble(number));
+            }
+            return JsonNodeFactory.instance.numberNode(new BigDecimal(number));
+        }
+        if (significantDigits <= MAX_LONG_DIGITS) {
+            if (negative) {
+                value = -value;
+            }
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return JsonNodeFactory.instance.numberNode((int) value);
+            }
+            return JsonNodeFactory.instance.numberNode(value);
+        }
+        final BigInteger bigValue = new BigInteger(number);
+        if (bigValue.bitLength() <= LONG_BIT_LENGTH) {
+            return JsonNodeFactory.instance.numberNode(bigValue.longValue());
+        }
+        return JsonNodeFactory.instance.numberNode(bigValue);
+    }
+
+    /**
+     * Private constructor for a static class.
+     */
+    private NumberDecoder() {
+    }
+}
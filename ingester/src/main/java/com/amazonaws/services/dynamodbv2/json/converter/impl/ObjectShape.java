@@ -0,0 +1,122 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Conversion plan for JSON objects that share one ordered set of field names. Holds the canonical field name Strings
+ * and the initial capacity for a HashMap that holds all fields without resizing. Two shapes are equal if their field
+ * names are equal and in the same order.
+ */
+final class ObjectShape {
+    /**
+     * Default load factor of a HashMap.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Canonical field names in iteration order.
+     */
+    private final String[] fieldNames;
+    /**
+     * Initial capacity for a HashMap holding all fields.
+     */
+    private final int capacity;
+    /**
+     * Total DynamoDB size of the field names.
+     */
+    private final int fieldNameBytes;
+    /**
+     * Cached hash code of the field names.
+     */
+    private final int hash;
+
+    /**
+     * Constructs an {@link ObjectShape} for the provided field names.
+     *
+     * @param fieldNames
+     *            Field names in iteration order. The array is owned by the shape after construction.
+     */
+    ObjectShape(final String[] fieldNames) {
+        this.fieldNames = fieldNames;
+        capacity = (int) (fieldNames.length / LOAD_FACTOR) + 1;
+        int nameBytes = 0;
+        for (final String fieldName : fieldNames) {
+            nameBytes += AttributeSizes.stringSize(fieldName);
+        }
+        fieldNameBytes = nameBytes;
+        hash = Arrays.hashCode(fieldNames);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ObjectShape)) {
+            return false;
+        }
+        final ObjectShape other = (ObjectShape) obj;
+        return hash == other.hash && Arrays.equals(fieldNames, other.fieldNames);
+    }
+
+    /**
+     * Gets the initial capacity for a HashMap that holds all fields of the shape without resizing.
+     *
+     * @return Initial HashMap capacity
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the total DynamoDB size of the field names of the shape.
+     *
+     * @return Size of the field names in bytes
+     */
+    int getFieldNameBytes() {
+        return fieldNameBytes;
+    }
+
+    /**
+     * Gets the canonical field names of the shape in iteration order.
+     *
+     * @return Canonical field names
+     */
+    String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Checks if a JSON object has the field names of the shape in the same order, without allocating a shape for it.
+     *
+     * @param object
+     *            JSON object
+     * @return True if the object has this shape
+     */
+    boolean matches(final JsonNode object) {
+        if (object.size() != fieldNames.length) {
+            return false;
+        }
+        final Iterator<String> it = object.fieldNames();
+        for (final String fieldName : fieldNames) {
+            if (!fieldName.equals(it.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * Thread-safe, bounded cache of the {@link ObjectShape}s seen by a converter. Once the cache is full, objects with new
+ * shapes are not learned and are converted by the generic path instead.
+ * </p>
+ * <p>
+ * Looking up the shape of an object compares its field names with the learned shapes in place, so only learning a
+ * new shape allocates. Shapes are kept in an open addressing table that is at most half full; the shape matched last
+ * is checked first, since consecutive objects usually share a shape.
+ * </p>
+ */
+final class ShapeCache {
+    /**
+     * Default maximum number of distinct shapes to learn.
+     */
+    static final int DEFAULT_MAX_SHAPES = 1024;
+
+    /**
+     * Copies the field names of a JSON object.
+     *
+     * @param object
+     *            JSON object
+     * @return Field names in iteration order
+     */
+    private static String[] getFieldNames(final JsonNode object) {
+        final String[] fieldNames = new String[object.size()];
+        final Iterator<String> it = object.fieldNames();
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = it.next();
+        }
+        return fieldNames;
+    }
+
+    /**
+     * Computes the hash code of the field names of a JSON object, equal to the hash code of the {@link ObjectShape}
+     * of the object.
+     *
+     * @param object
+     *            JSON object
+     * @return Hash code of the field names
+     */
+    private static int hash(final JsonNode object) {
+        int hash = 1;
+        final Iterator<String> it = object.fieldNames();
+        while (it.hasNext()) {
+            hash = 31 * hash + it.next().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Learned shapes by hash code, with linear probing.
+     */
+    private final AtomicReferenceArray<ObjectShape> table;
+    /**
+     * Mask of a hash code to an index of the table.
+     */
+    private final int mask;
+    /**
+     * Maximum number of distinct shapes to learn.
+     */
+    private final int maxShapes;
+    /**
+     * Number of learned shapes.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * Shape matched last, or null if none was matched yet.
+     */
+    private volatile ObjectShape lastShape;
+
+    /**
+     * Constructs a {@link ShapeCache} that learns up to the specified number of shapes.
+     *
+     * @param maxShapes
+     *            Maximum number of distinct shapes to learn
+     */
+    ShapeCache(final int maxShapes) {
+        this.maxShapes = maxShapes;
+        // Smallest power of two that is at least twice the number of shapes
+        final int capacity = Integer.highestOneBit(Math.max(2 * maxShapes - 1, 1)) << 1;
+        table = new AtomicReferenceArray<ObjectShape>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Gets the shape of a JSON object, learning it if it has not been seen before.
+     *
+     * @param object
+     *            JSON object
+     * @return Shape of the object or null if the shape is new and the cache is full
+     */
+    ObjectShape getShape(final JsonNode object) {
+        final ObjectShape last = lastShape;
+        if (last != null && last.matches(object)) {
+            return last;
+        }
+        final int hash = hash(object);
+        int i = (hash ^ hash >>> 16) & mask;
+        ObjectShape shape;
+        while ((shape = table.get(i)) != null) {
+            if (shape.hashCode() == hash && shape.matches(object)) {
+                lastShape = shape;
+                return shape;
+            }
+            i = (i + 1) & mask;
+        }
+        return learn(object, hash, i);
+    }
+
+    /**
+     * Learns the shape of a JSON object.
+     *
+     * @param object
+     *            JSON object with a shape that was not found in the table
+     * @param hash
+     *            Hash code of the field names of the object
+     * @param index
+     *            Index of the empty slot of the table where the lookup ended
+     * @return Shape of the object or null if the cache is full
+     */
+    private ObjectShape learn(final JsonNode object, final int hash, final int index) {
+        if (size.incrementAndGet() > maxShapes) {
+            size.decrementAndGet();
+            return null;
+        }
+        final ObjectShape shape = new ObjectShape(getFieldNames(object));
+        int i = index;
+        while (!table.compareAndSet(i, null, shape)) {
+            final ObjectShape other = table.get(i);
+            if (other.hashCode() == hash && other.matches(object)) {
+                // Learned by another thread in the meantime
+                size.decrementAndGet();
+                return other;
+            }
+            i = (i + 1) & mask;
+        }
+        lastShape = shape;
+        return shape;
+    }
+
+    /**
+     * Gets the number of learned shapes.
+     *
+     * @return Number of learned shapes
+     */
+    int size() {
+        return size.get();
+    }
+}
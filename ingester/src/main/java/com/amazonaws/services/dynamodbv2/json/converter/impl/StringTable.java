@@ -0,0 +1,115 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+/**
+ * Bounded table of canonical Strings for attribute names and short values that repeat across items. The table is
+ * direct-mapped: each String hashes to one slot, and a miss replaces the String in the slot, so frequently repeated
+ * Strings stay in the table while one-off Strings are evicted. Lookups are lock-free. Concurrent updates of a slot may
+ * lose an entry, which only costs a later miss, because Strings are immutable and safely published.
+ */
+final class StringTable {
+    /**
+     * Default number of slots.
+     */
+    static final int DEFAULT_SLOTS = 4096;
+    /**
+     * Default maximum length of a String to canonicalize. Longer Strings, such as URLs and thumbnail data, rarely
+     * repeat and are not worth hashing.
+     */
+    static final int DEFAULT_MAX_LENGTH = 64;
+
+    /**
+     * Spreads the high bits of a hash into the low bits used for the slot index.
+     *
+     * @param hash
+     *            String hash code
+     * @return Spread hash
+     */
+    private static int spread(final int hash) {
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Canonical Strings, indexed by hash.
+     */
+    private final String[] slots;
+    /**
+     * Mask for mapping a hash to a slot.
+     */
+    private final int mask;
+    /**
+     * Maximum length of a String to canonicalize.
+     */
+    private final int maxLength;
+
+    /**
+     * Constructs a {@link StringTable}.
+     *
+     * @param slots
+     *            Number of slots, rounded up to a power of two
+     * @param maxLength
+     *            Maximum length of a String to canonicalize
+     */
+    StringTable(final int slots, final int maxLength) {
+        final int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.slots = new String[size];
+        mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Gets the canonical String for a range of characters without creating a String if the characters are already in
+     * the table.
+     *
+     * @param chars
+     *            Character buffer
+     * @param offset
+     *            Offset of the first character in the buffer
+     * @param length
+     *            Number of characters
+     * @return Canonical String with the characters
+     */
+    String canonicalize(final char[] chars, final int offset, final int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+        // Same hash as String.hashCode()
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        final int slot = spread(hash) & mask;
+        final String candidate = slots[slot];
+        if (candidate != null && candidate.length() == length) {
+            int i = 0;
+            while (i < length && candidate.charAt(i) == chars[offset + i]) {
+                i++;
+            }
+            if (i == length) {
+                return candidate;
+            }
+        }
+        final String s = new String(chars, offset, length);
+        slots[slot] = s;
+        return s;
+    }
+
+    /**
+     * Gets the canonical String that is equal to the provided String.
+     *
+     * @param s
+     *            String to canonicalize
+     * @return Canonical String equal to the provided String
+     */
+    String canonicalize(final String s) {
+        if (s.length() > maxLength) {
+            return s;
+        }
+        final int slot = spread(s.hashCode()) & mask;
+        final String candidate = slots[slot];
+        if (s.equals(candidate)) {
+            return candidate;
+        }
+        slots[slot] = s;
+        return s;
+    }
+}
@@ -1,24 +1,36 @@
 package com.amazonaws.services.dynamodbv2.json.demo.mars;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.json.converter.AttributeProjection;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.BoundedExecutor;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.ConfigParser;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.DynamoDBManager;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.FetchGovernor;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.HttpConnectionPool;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.HttpDiskCache;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.IngestMetrics;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.NetworkUtils;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.worker.DynamoDBImageWorker;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.worker.DynamoDBJSONRootWorker;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.worker.DynamoDBMissionWorker;
@@ -64,6 +76,20 @@ public class ImageIngester implements Runnable {
      * Properties key for number of threads in the pool for {@link DynamoDBImageWorker}s.
      */
     public static final String CONFIG_NUM_IMAGE_THREADS = "ingester.image.threads";
+    /**
+     * Properties key for the maximum number of {@link DynamoDBSolWorker}s waiting for a thread. Missions wait for space
+     * in the queue before submitting more sols.
+     */
+    public static final String CONFIG_SOL_QUEUE = "ingester.sol.queue";
+    /**
+     * Properties key for the maximum number of {@link DynamoDBImageWorker}s waiting for a thread. Sols wait for space
+     * in the queue before submitting more images.
+     */
+    public static final String CONFIG_IMAGE_QUEUE = "ingester.image.queue";
+    /**
+     * Default maximum number of tasks waiting for a thread.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
     /**
      * Flag for whether resources should be tracked by ETag in a DynamoDB table.
      */
@@ -81,13 +107,13 @@ public class ImageIngester implements Runnable {
      */
     public static final boolean DEFAULT_STORE_THUMBNAILS = false;
     /**
-     * Properties key for the amount of time to wait between checking asynchronous tasks for completion.
+     * Properties key for the interval between progress reports while waiting for asynchronous tasks to complete.
      */
-    public static final String CONFIG_WAIT_TIME = "ingester.waitTime";
+    public static final String CONFIG_PROGRESS_INTERVAL = "ingester.progressInterval";
     /**
-     * Default amount of time to wait between checking asynchronous tasks for completion.
+     * Default interval between progress reports while waiting for asynchronous tasks to complete.
      */
-    public static final long DEFAULT_WAIT_TIME = 20 * 1000; // 20 seconds
+    public static final long DEFAULT_PROGRESS_INTERVAL = 20 * 1000; // 20 seconds
     /**
      * Properties key for the connect timeout when retrieving an HTTP resource.
      */
@@ -96,6 +122,46 @@ public class ImageIngester implements Runnable {
      * Default connect timeout when retrieving an HTTP resource.
      */
     public static final int DEFAULT_CONNECT_TIMEOUT = 1000;
+    /**
+     * Properties key for the maximum number of concurrent HTTP connections.
+     */
+    public static final String CONFIG_HTTP_MAX_CONNECTIONS = "ingester.http.connections";
+    /**
+     * Properties key for the maximum number of concurrent HTTP connections per host.
+     */
+    public static final String CONFIG_HTTP_MAX_CONNECTIONS_PER_HOST = "ingester.http.connections.perHost";
+    /**
+     * Properties key for the maximum number of HTTP requests per second per host.
+     */
+    public static final String CONFIG_HTTP_RATE = "ingester.http.rate";
+    /**
+     * Properties key for the maximum number of retries of a failed HTTP request.
+     */
+    public static final String CONFIG_HTTP_MAX_RETRIES = "ingester.http.retries";
+    /**
+     * Properties key for the backoff in milliseconds before the first retry of a failed HTTP request.
+     */
+    public static final String CONFIG_HTTP_BACKOFF = "ingester.http.backoff";
+    /**
+     * Properties key for the number of consecutive failures that stops requests to a host.
+     */
+    public static final String CONFIG_HTTP_FAILURE_THRESHOLD = "ingester.http.circuitBreaker.failures";
+    /**
+     * Properties key for the time in milliseconds requests to a failing host are stopped.
+     */
+    public static final String CONFIG_HTTP_OPEN_TIME = "ingester.http.circuitBreaker.openTime";
+    /**
+     * Properties key for the directory of the HTTP response cache.
+     */
+    public static final String CONFIG_HTTP_CACHE_DIRECTORY = "ingester.http.cache.directory";
+    /**
+     * Default directory of the HTTP response cache. Empty to disable the cache.
+     */
+    public static final String DEFAULT_HTTP_CACHE_DIRECTORY = "";
+    /**
+     * Properties key for the maximum size in bytes of the HTTP response cache.
+     */
+    public static final String CONFIG_HTTP_CACHE_SIZE = "ingester.http.cache.size";
     /**
      * Properties key for image thumbnail width in pixels.
      */
@@ -104,6 +170,10 @@ public class ImageIngester implements Runnable {
      * Properties key for image thumbnail height in pixels.
      */
     public static final String CONFIG_THUMBNAIL_HEIGHT = "ingester.image.thumbnail.height";
+    /**
+     * Properties key for the number of leading bytes of an image to make its thumbnail from.
+     */
+    public static final String CONFIG_THUMBNAIL_RANGE = "ingester.image.thumbnail.rangeBytes";
     /**
      * Default value for image thumbnail width in pixels.
      */
@@ -112,6 +182,18 @@ public class ImageIngester implements Runnable {
      * Default value for image thumbnail height in pixels.
      */
     public static final int DEFAULT_THUMBNAIL_HEIGHT = 100;
+    /**
+     * Default is to make thumbnails from whole images.
+     */
+    public static final int DEFAULT_THUMBNAIL_RANGE = 0;
+    /**
+     * Properties key for the comma-separated attribute paths that are not stored in the image table.
+     */
+    public static final String CONFIG_IMAGE_EXCLUDED_ATTRIBUTES = "ingester.image.attributes.exclude";
+    /**
+     * Default value for the attribute paths that are not stored in the image table.
+     */
+    public static final String DEFAULT_IMAGE_EXCLUDED_ATTRIBUTES = "";
     /**
      * Properties key for DynamoDB endpoint.
      */
@@ -316,9 +398,9 @@ public class ImageIngester implements Runnable {
      */
     private final AmazonDynamoDB dynamoDB;
     /**
-     * Wait time between checks for asynchronous tasks to complete.
+     * Interval between progress reports while waiting for asynchronous tasks to complete.
      */
-    private final long waitTime;
+    private final long progressInterval;
     /**
      * Timeout for retrieving HTTP URL resources.
      */
@@ -330,12 +412,56 @@ public class ImageIngester implements Runnable {
     /**
      * Thread pool for {@link DynamoDBSolWorker}s.
      */
-    private ExecutorService solPool;
+    private BoundedExecutor solPool;
+    /**
+     * Completed {@link DynamoDBSolWorker}s in the order they complete.
+     */
+    private CompletionService<ArrayNode> solCompletionService;
     /**
      * Thread pool for {@link DynamoDBImageWorker}s.
      */
-    private ExecutorService imagePool;
+    private BoundedExecutor imagePool;
+    /**
+     * Completed {@link DynamoDBImageWorker}s in the order they complete.
+     */
+    private CompletionService<Void> imageCompletionService;
+    /**
+     * Metrics for the items written by {@link DynamoDBImageWorker}s.
+     */
+    private final IngestMetrics metrics = new IngestMetrics();
+    /**
+     * Thumbnail width in pixels.
+     */
+    private final int thumbnailWidth;
+    /**
+     * Thumbnail height in pixels.
+     */
+    private final int thumbnailHeight;
+    /**
+     * Number of leading bytes of an image to make its thumbnail from, or 0 to always fetch whole images.
+     */
+    private final int thumbnailRange;
+    /**
+     * Whether resources are tracked by ETag in the resource table.
+     */
+    private final boolean trackResources;
+    /**
+     * Whether thumbnails are stored in the image table.
+     */
+    private final boolean storeThumbnails;
+    /**
+     * Projection that selects the attributes stored in the image table.
+     */
+    private final AttributeProjection projection;
 
+    /**
+     * Number of {@link DynamoDBSolWorker}s submitted to the sol completion service that were not taken from it yet.
+     */
+    private int pendingSols;
+    /**
+     * Number of {@link DynamoDBImageWorker}s submitted to the image completion service that were not taken from it yet.
+     */
+    private int pendingImages;
     /**
      * Constructs a {@link ImageIngester} with the specified command line arguments and Amazon Web Services credentials
      * provider.
@@ -357,11 +483,48 @@ public class ImageIngester implements Runnable {
         // Parse configuration settings
         resourceTable = ConfigParser.parseString(config, CONFIG_RESOURCE_TABLE);
         imageTable = ConfigParser.parseString(config, CONFIG_IMAGE_TABLE);
-        waitTime = ConfigParser.parseLong(config, CONFIG_WAIT_TIME, DEFAULT_WAIT_TIME);
+        progressInterval = ConfigParser.parseLong(config, CONFIG_PROGRESS_INTERVAL, DEFAULT_PROGRESS_INTERVAL);
         connectTimeout = ConfigParser.parseInteger(config, CONFIG_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
         final String endpoint = ConfigParser.parseString(config, CONFIG_ENDPOINT);
         final int numManifestThreads = ConfigParser.parseInteger(config, CONFIG_NUM_MANIFEST_THREADS, DEFAULT_THREADS);
+        final int maxConnections = ConfigParser.parseInteger(config, CONFIG_HTTP_MAX_CONNECTIONS,
+            HttpConnectionPool.DEFAULT_MAX_CONNECTIONS);
+        final int maxConnectionsPerHost = ConfigParser.parseInteger(config, CONFIG_HTTP_MAX_CONNECTIONS_PER_HOST,
+            HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        final int rate = ConfigParser.parseInteger(config, CONFIG_HTTP_RATE, FetchGovernor.DEFAULT_RATE);
+        final int maxRetries = ConfigParser.parseInteger(config, CONFIG_HTTP_MAX_RETRIES,
+            FetchGovernor.DEFAULT_MAX_RETRIES);
+        final long backoff = ConfigParser.parseLong(config, CONFIG_HTTP_BACKOFF, FetchGovernor.DEFAULT_BASE_BACKOFF);
+        final int failureThreshold = ConfigParser.parseInteger(config, CONFIG_HTTP_FAILURE_THRESHOLD,
+            FetchGovernor.DEFAULT_FAILURE_THRESHOLD);
+        final long openTime = ConfigParser.parseLong(config, CONFIG_HTTP_OPEN_TIME, FetchGovernor.DEFAULT_OPEN_TIME);
+        thumbnailWidth = ConfigParser.parseInteger(config, CONFIG_THUMBNAIL_WIDTH, DEFAULT_THUMBNAIL_WIDTH);
+        thumbnailHeight = ConfigParser.parseInteger(config, CONFIG_THUMBNAIL_HEIGHT, DEFAULT_THUMBNAIL_HEIGHT);
+        thumbnailRange = ConfigParser.parseInteger(config, CONFIG_THUMBNAIL_RANGE, DEFAULT_THUMBNAIL_RANGE);
+        trackResources = ConfigParser.parseBoolean(config, CONFIG_TRACK_RESOURCES, DEFAULT_TRACK_RESOURCES);
+        storeThumbnails = ConfigParser.parseBoolean(config, CONFIG_STORE_THUMBNAILS, DEFAULT_STORE_THUMBNAILS);
+        projection = parseImageProjection();
         // Setup state
+        try {
+            // Keep as many idle connections per host as may be used concurrently, before the first HTTP request
+            HttpConnectionPool.setMaxIdleConnectionsPerHost(maxConnectionsPerHost);
+            NetworkUtils.setConnectionPool(new HttpConnectionPool(maxConnections, maxConnectionsPerHost));
+            NetworkUtils.setFetchGovernor(new FetchGovernor(rate, maxConnectionsPerHost, maxRetries, backoff, Math.max(
+                backoff, FetchGovernor.DEFAULT_MAX_BACKOFF), failureThreshold, openTime));
+        } catch (final IllegalArgumentException e) {
+            throw new ExitException("Invalid HTTP connection pool configuration: " + e.getMessage(), e);
+        }
+        final String cacheDirectory = ConfigParser.parseString(config, CONFIG_HTTP_CACHE_DIRECTORY,
+            DEFAULT_HTTP_CACHE_DIRECTORY);
+        if (!cacheDirectory.isEmpty()) {
+            final long cacheSize = ConfigParser.parseLong(config, CONFIG_HTTP_CACHE_SIZE,
+                HttpDiskCache.DEFAULT_MAX_BYTES);
+            try {
+                NetworkUtils.setResponseCache(new HttpDiskCache(new File(cacheDirectory), cacheSize));
+            } catch (final IOException | IllegalArgumentException e) {
+                throw new ExitException("Invalid HTTP cache configuration: " + e.getMessage(), e);
+            }
+        }
         dynamoDB = new AmazonDynamoDBClient(credentialsProvider);
         dynamoDB.setEndpoint(endpoint);
         manifestPool = Executors.newFixedThreadPool(numManifestThreads);
@@ -369,34 +532,80 @@ public class ImageIngester implements Runnable {
 
     /**
      * Waits for all {@link DynamoDBImageWorker} tasks to complete.
-     *
-     * @param imageFutures
-     *            Collection of futures corresponding to {@link DynamoDBImageWorker} tasks
      */
-    private void awaitTermination(final Collection<Future<?>> imageFutures) {
-        while (!imageFutures.isEmpty()) {
-            LOGGER.info(imageFutures.size() + " images left to process");
+    private void awaitTermination() {
+        while (pendingImages > 0) {
             try {
-                Thread.sleep(waitTime);
+                take(imageCompletionService, pendingImages, "images left to process");
+                pendingImages--;
             } catch (final InterruptedException e) {
                 LOGGER.warning(e.getMessage());
             }
-            final Iterator<Future<?>> it = imageFutures.iterator();
-            while (it.hasNext()) {
-                final Future<?> f = it.next();
-                if (f.isDone()) {
-                    it.remove();
-                }
+        }
+        LOGGER.info("Ingestion completed: " + metrics + "; peak queue depths: " + solPool.getMaxQueueDepth()
+            + " sols, " + imagePool.getMaxQueueDepth() + " images; waited for queue space " + solPool.getBlockedCount()
+            + " times for sols, " + imagePool.getBlockedCount() + " times for images");
+    }
+
+    /**
+     * Describes the depths of the queues of sols and images waiting for a thread.
+     *
+     * @return Description of the queue depths
+     */
+    private String getQueueDepths() {
+        if (solPool == null || imagePool == null) {
+            return "";
+        }
+        return " (queued: " + solPool.getQueueDepth() + "/" + solPool.getQueueCapacity() + " sols, "
+            + imagePool.getQueueDepth() + "/" + imagePool.getQueueCapacity() + " images)";
+    }
+
+    /**
+     * Parses the attribute paths that are not stored in the image table into an {@link AttributeProjection}.
+     *
+     * @return Projection that selects the attributes stored in the image table
+     * @throws ExitException
+     *             Error parsing configuration
+     */
+    private AttributeProjection parseImageProjection() throws ExitException {
+        final String excluded = ConfigParser.parseString(config, CONFIG_IMAGE_EXCLUDED_ATTRIBUTES,
+            DEFAULT_IMAGE_EXCLUDED_ATTRIBUTES);
+        final List<String> paths = new ArrayList<>();
+        for (final String path : excluded.split(",")) {
+            if (!path.trim().isEmpty()) {
+                paths.add(path.trim());
             }
         }
-        LOGGER.info("Ingestion completed.");
+        if (paths.isEmpty()) {
+            return AttributeProjection.ALL;
+        }
+        try {
+            return AttributeProjection.exclude(paths.toArray(new String[paths.size()]));
+        } catch (final IllegalArgumentException e) {
+            throw new ExitException("Invalid value for " + CONFIG_IMAGE_EXCLUDED_ATTRIBUTES + ": " + excluded, e);
+        }
     }
 
     /**
+     * Takes the sols that completed from the sol completion service without waiting and processes them.
+     */
+    private void processCompletedSols() {
+        Future<ArrayNode> sol;
+        while ((sol = solCompletionService.poll()) != null) {
+            pendingSols--;
+            processSol(sol);
+        }
+    }
+
+    /**
+     * <p>
+     * Submits a {@link DynamoDBMissionWorker} for each mission. Takes each mission as soon as it completes and submits
+     * a new {@link DynamoDBSolWorker} to process each sol in the mission to the sol completion service. Each sol
+     * worker provides an {@link ArrayNode} of all the images in the sol.
+     * </p>
      * <p>
-     * Submits a {@link DynamoDBMissionWorker} for each mission. Gets results from mission futures as they become
-     * available and submits a new {@link DynamoDBSolWorker} to process each sol in the mission. Returns a future for
-     * each sol that contains an {@link ArrayNode} of all the images in the sol
+     * Submitting a sol waits while the sol queue is full. Sols that completed in the meantime are processed between
+     * submissions, so neither the sols waiting for a thread nor the completed sols pile up in memory.
      * </p>
      * <p>
      * If there is an error parsing a mission, a warning is logged and the mission is skipped.
@@ -404,63 +613,49 @@ public class ImageIngester implements Runnable {
      *
      * @param topLevelManifests
      *            Map of mission to its manifest URL
-     *
-     * @return futures for each sol that will provide an {@link ArrayNode} of images in the sol
      * @throws ExitException
      *             Error parsing configuration
      */
-    private Collection<Future<ArrayNode>> processMissions(final Map<String, String> topLevelManifests)
-        throws ExitException {
-        final Collection<Future<Map<Integer, String>>> missions = new ArrayList<>();
-        final Collection<Future<ArrayNode>> solFutures = new ArrayList<>();
+    private void processMissions(final Map<String, String> topLevelManifests) throws ExitException {
+        final CompletionService<Map<Integer, String>> missions = new ExecutorCompletionService<>(manifestPool);
         // Submit task for each mission
         for (final Entry<String, String> manifest : topLevelManifests.entrySet()) {
             final String resource = manifest.getValue();
             final DynamoDBMissionWorker worker = new DynamoDBMissionWorker(resource, connectTimeout);
-            final Future<Map<Integer, String>> future = manifestPool.submit(worker);
-            // Add future to collection
-            missions.add(future);
+            missions.submit(worker);
         }
         manifestPool.shutdown();
         final int numSolThreads = ConfigParser.parseInteger(config, CONFIG_NUM_SOL_THREADS, DEFAULT_THREADS);
-        solPool = Executors.newFixedThreadPool(numSolThreads);
-        // Process all mission futures
-        while (!missions.isEmpty()) {
-            final Iterator<Future<Map<Integer, String>>> it = missions.iterator();
-            while (it.hasNext()) {
-                final Future<Map<Integer, String>> missionFuture = it.next();
-                if (missionFuture.isDone()) {
-                    // Process finished mission future
-                    try {
-                        final Map<Integer, String> mission = missionFuture.get();
-                        // Submit task for each sol in the mission
-                        for (final String solURL : mission.values()) {
-                            final DynamoDBSolWorker worker = new DynamoDBSolWorker(
-                            /* dynamoDB, resourceTable, */solURL, connectTimeout);
-                            final Future<ArrayNode> future = solPool.submit(worker);
-                            // Add sol future to collection
-                            solFutures.add(future);
-                        }
-                    } catch (InterruptedException | ExecutionException e) {
-                        // Skip mission if there was an error, but report
-                        // warning
-                        LOGGER.warning(e.getMessage());
-                    } finally {
-                        it.remove(); // future is processed (successful or
-                                     // error), remove from collection
-                    }
-                }
-            }
-            // Wait a bit for the tasks to finish before checking again
+        final int solQueue = ConfigParser.parseInteger(config, CONFIG_SOL_QUEUE, DEFAULT_QUEUE_CAPACITY);
+        final int numImageThreads = ConfigParser.parseInteger(config, CONFIG_NUM_IMAGE_THREADS, DEFAULT_THREADS);
+        final int imageQueue = ConfigParser.parseInteger(config, CONFIG_IMAGE_QUEUE, DEFAULT_QUEUE_CAPACITY);
+        try {
+            solPool = new BoundedExecutor(numSolThreads, solQueue);
+            imagePool = new BoundedExecutor(numImageThreads, imageQueue);
+        } catch (final IllegalArgumentException e) {
+            throw new ExitException("Invalid thread pool configuration: " + e.getMessage(), e);
+        }
+        solCompletionService = new ExecutorCompletionService<>(solPool);
+        imageCompletionService = new ExecutorCompletionService<>(imagePool);
+        // Process each mission as soon as it completes
+        for (int remaining = topLevelManifests.size(); remaining > 0; remaining--) {
             try {
-                Thread.sleep(waitTime);
-            } catch (final InterruptedException e) {
+                final Map<Integer, String> mission = take(missions, remaining, "missions remaining").get();
+                // Submit task for each sol in the mission
+                for (final String solURL : mission.values()) {
+                    final DynamoDBSolWorker worker = new DynamoDBSolWorker(
+                    /* dynamoDB, resourceTable, */solURL, connectTimeout);
+                    solCompletionService.submit(worker);
+                    pendingSols++;
+                    processCompletedSols();
+                }
+            } catch (InterruptedException | ExecutionException | RejectedExecutionException e) {
+                // Skip mission if there was an error, but report
+                // warning
                 LOGGER.warning(e.getMessage());
             }
-
         }
         solPool.shutdown();
-        return solFutures;
     }
 
     /**
@@ -487,75 +682,58 @@ public class ImageIngester implements Runnable {
 
     /**
      * <p>
-     * Gets the results from each sol future as they become available and submits a new {@link DynamoDBImageWorker} to
-     * process each image contained in the sol.
+     * Submits a new {@link DynamoDBImageWorker} to process each image contained in a completed sol to the image
+     * completion service, so images are processed while the remaining sols are retrieved. Submitting an image waits
+     * while the image queue is full, which in turn holds back the submission of further sols.
      * </p>
      * <p>
-     * If there is an error processing a sol, a warning is logged and the sol is skipped.
+     * If there is an error processing the sol, a warning is logged and the sol is skipped.
      * </p>
      *
-     * @param solFutures
-     *            Futures for each sol that provides an {@link ArrayNode} that contains the images from the sol
-     * @return Collection of {@link Future}s for monitoring {@link DynamoDBImageWorker} progress
-     * @throws ExitException
-     *             Error parsing configuration
+     * @param sol
+     *            Completed {@link DynamoDBSolWorker}
      */
-    private Collection<Future<?>> processSolFutures(final Collection<Future<ArrayNode>> solFutures)
-        throws ExitException {
-        final Collection<DynamoDBImageWorker> workers = new ArrayList<>();
-        final Collection<Future<?>> imageFutures = new ArrayList<>();
-        final int numImageThreads = ConfigParser.parseInteger(config, CONFIG_NUM_IMAGE_THREADS, DEFAULT_THREADS);
-        imagePool = Executors.newFixedThreadPool(numImageThreads);
-        // Process all sol futures
-        while (!solFutures.isEmpty()) {
-            LOGGER.info(solFutures.size() + " sols remaining");
-            // Wait a bit for the tasks to finish before checking again
+    private void processSol(final Future<ArrayNode> sol) {
+        try {
+            final ArrayNode images = sol.get();
+            metrics.recordSol();
+            // Submit task for each image in the sol
+            for (final JsonNode image : images) {
+                if (!image.isObject()) {
+                    LOGGER.warning("Unexpected image: " + image);
+                    continue;
+                }
+                final DynamoDBImageWorker worker = new DynamoDBImageWorker(dynamoDB, imageTable, resourceTable,
+                    (ObjectNode) image, connectTimeout, thumbnailWidth, thumbnailHeight, thumbnailRange,
+                    trackResources, storeThumbnails, projection, metrics);
+                imageCompletionService.submit(worker, null);
+                pendingImages++;
+                // Take completed images, so they do not pile up in the completion service
+                while (imageCompletionService.poll() != null) {
+                    pendingImages--;
+                }
+            }
+        } catch (InterruptedException | ExecutionException | RejectedExecutionException e) {
+            // Skip sol if there was an error, but report warning
+            LOGGER.warning(e.getMessage());
+        }
+    }
+
+    /**
+     * Takes each remaining sol from the sol completion service as soon as it completes and processes it.
+     */
+    private void processSols() {
+        while (pendingSols > 0) {
             try {
-                Thread.sleep(waitTime);
+                final Future<ArrayNode> sol = take(solCompletionService, pendingSols, "sols remaining");
+                pendingSols--;
+                processSol(sol);
             } catch (final InterruptedException e) {
                 LOGGER.warning(e.getMessage());
             }
-            final Iterator<Future<ArrayNode>> it = solFutures.iterator();
-            while (it.hasNext()) {
-                final Future<ArrayNode> solFuture = it.next();
-                if (solFuture.isDone()) {
-                    try {
-                        final ArrayNode images = solFuture.get();
-                        final int thumbnailWidth = ConfigParser.parseInteger(config, CONFIG_THUMBNAIL_WIDTH,
-                            DEFAULT_THUMBNAIL_WIDTH);
-                        final int thumbnailHeight = ConfigParser.parseInteger(config, CONFIG_THUMBNAIL_HEIGHT,
-                            DEFAULT_THUMBNAIL_HEIGHT);
-                        final boolean trackResources = ConfigParser.parseBoolean(config, CONFIG_TRACK_RESOURCES,
-                            DEFAULT_TRACK_RESOURCES);
-                        final boolean storeThumbnails = ConfigParser.parseBoolean(config, CONFIG_STORE_THUMBNAILS,
-                            DEFAULT_STORE_THUMBNAILS);
-                        // Submit task for each image in the sol
-                        for (final JsonNode image : images) {
-                            if (!image.isObject()) {
-                                LOGGER.warning("Unexpected image: " + image);
-                                continue;
-                            }
-                            final DynamoDBImageWorker worker = new DynamoDBImageWorker(dynamoDB, imageTable,
-                                resourceTable, (ObjectNode) image, connectTimeout, thumbnailWidth, thumbnailHeight,
-                                trackResources, storeThumbnails);
-                            workers.add(worker);
-                        }
-                    } catch (InterruptedException | ExecutionException e) {
-                        // Skip sol if there was an error, but report warning
-                        LOGGER.warning(e.getMessage());
-                    } finally {
-                        it.remove(); // future is processed (successful or
-                                     // error), remove from collection
-                    }
-                }
-            }
         }
         LOGGER.info("All sols processed.");
-        for (final DynamoDBImageWorker worker : workers) {
-            imageFutures.add(imagePool.submit(worker));
-        }
         imagePool.shutdown();
-        return imageFutures;
     }
 
     /**
@@ -566,11 +744,35 @@ public class ImageIngester implements Runnable {
         try {
             setupTables(dynamoDB, config);
             final Map<String, String> missions = processRootJSON();
-            final Collection<Future<ArrayNode>> imageArrayFutures = processMissions(missions);
-            final Collection<Future<?>> imageFutures = processSolFutures(imageArrayFutures);
-            awaitTermination(imageFutures);
+            processMissions(missions);
+            processSols();
+            awaitTermination();
         } catch (final ExitException e) {
             return;
         }
     }
+
+    /**
+     * Waits for the next task of a completion service to complete, reporting progress while waiting.
+     *
+     * @param service
+     *            Completion service
+     * @param remaining
+     *            Number of tasks of the completion service that did not complete yet
+     * @param description
+     *            Description of the remaining tasks for progress reports
+     * @param <T>
+     *            Result type of the tasks
+     * @return Future of the completed task
+     * @throws InterruptedException
+     *             Interrupted while waiting
+     */
+    private <T> Future<T> take(final CompletionService<T> service, final int remaining, final String description)
+        throws InterruptedException {
+        Future<T> future;
+        while ((future = service.poll(progressInterval, TimeUnit.MILLISECONDS)) == null) {
+            LOGGER.info(remaining + " " + description + getQueueDepths());
+        }
+        return future;
+    }
 }
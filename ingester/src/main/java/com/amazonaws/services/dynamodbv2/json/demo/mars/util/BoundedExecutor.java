@@ -0,0 +1,169 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Fixed size thread pool with a bounded queue of waiting tasks. When the queue is full, {@link #execute(Runnable)}
+ * blocks the submitting thread until a task completes, so a producer of tasks is slowed down to the pace of the
+ * threads consuming them instead of buffering an unbounded number of tasks and their results in memory.
+ * </p>
+ * <p>
+ * The depth of the queue, its peak, and the number of times a producer had to wait for space are tracked for
+ * monitoring.
+ * </p>
+ */
+public class BoundedExecutor implements Executor {
+    /**
+     * Threads that run the tasks.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Permits for tasks that are waiting or running.
+     */
+    private final Semaphore permits;
+    /**
+     * Maximum number of tasks waiting in the queue.
+     */
+    private final int queueCapacity;
+    /**
+     * Peak number of tasks waiting in the queue.
+     */
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    /**
+     * Number of times a producer waited for space in the queue.
+     */
+    private final AtomicLong blockedCount = new AtomicLong();
+
+    /**
+     * Constructs a {@link BoundedExecutor}.
+     *
+     * @param threads
+     *            Number of threads
+     * @param queueCapacity
+     *            Maximum number of tasks waiting for a thread. 0 hands each task directly to an idle thread.
+     */
+    public BoundedExecutor(final int threads, final int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Queue capacity must not be negative");
+        }
+        this.queueCapacity = queueCapacity;
+        // The semaphore bounds the queue, so the queue itself never rejects a task
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>());
+        permits = new Semaphore(threads + queueCapacity);
+    }
+
+    /**
+     * Waits until all tasks completed after {@link #shutdown()}.
+     *
+     * @param timeout
+     *            Maximum time to wait
+     * @param unit
+     *            Unit of the timeout
+     * @return True if all tasks completed, false if the timeout elapsed first
+     * @throws InterruptedException
+     *             Interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Submits a task, waiting for space in the queue if it is full.
+     *
+     * @param command
+     *            Task to run
+     * @throws RejectedExecutionException
+     *             The executor was shut down, or the thread was interrupted while waiting for space in the queue
+     */
+    @Override
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (!permits.tryAcquire()) {
+            blockedCount.incrementAndGet();
+            try {
+                permits.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for space in the queue", e);
+            }
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        final int depth = getQueueDepth();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // Retry until the peak is at least the current depth
+        }
+    }
+
+    /**
+     * Gets the number of times a producer waited for space in the queue.
+     *
+     * @return Number of submissions that blocked
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * Gets the peak number of tasks waiting in the queue.
+     *
+     * @return Peak queue depth
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the maximum number of tasks waiting in the queue. Tasks that are about to be taken by a thread that just
+     * completed a task may briefly exceed it.
+     *
+     * @return Queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     *
+     * @return Current queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting tasks. Tasks that were already submitted complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,181 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.io.InputStream;
+
+/**
+ * Result of a conditional HTTP GET. Either the resource was modified and the response contains its data, a leading
+ * part of its data, or an open stream of its data, or the server reported that the resource was not modified since
+ * the validators sent with the request.
+ */
+public final class ConditionalResponse {
+    /**
+     * Creates a response for a resource that was modified.
+     *
+     * @param data
+     *            Data of the resource
+     * @param eTag
+     *            ETag of the resource, or null if the server did not send one
+     * @param lastModified
+     *            Last modification time of the resource in milliseconds since the epoch, or 0 if the server did not
+     *            send one
+     * @return Response with data
+     */
+    public static ConditionalResponse modified(final byte[] data, final String eTag, final long lastModified) {
+        if (data == null) {
+            throw new IllegalArgumentException("Data cannot be null");
+        }
+        return new ConditionalResponse(data, null, eTag, lastModified, false);
+    }
+
+    /**
+     * Creates a response for a resource that was modified, whose data is read from a stream. The caller of the request
+     * must close the stream.
+     *
+     * @param stream
+     *            Open stream of the data of the resource
+     * @param eTag
+     *            ETag of the resource, or null if the server did not send one
+     * @param lastModified
+     *            Last modification time of the resource in milliseconds since the epoch, or 0 if the server did not
+     *            send one
+     * @return Response with a stream of the data
+     */
+    public static ConditionalResponse modified(final InputStream stream, final String eTag, final long lastModified) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream cannot be null");
+        }
+        return new ConditionalResponse(null, stream, eTag, lastModified, false);
+    }
+
+    /**
+     * Creates a response for a resource that was not modified.
+     *
+     * @param eTag
+     *            ETag of the resource, or null if unknown
+     * @param lastModified
+     *            Last modification time of the resource in milliseconds since the epoch, or 0 if unknown
+     * @return Response without data
+     */
+    public static ConditionalResponse notModified(final String eTag, final long lastModified) {
+        return new ConditionalResponse(null, null, eTag, lastModified, false);
+    }
+
+    /**
+     * Creates a response for a resource that was modified, of which only a leading part of the data was retrieved.
+     *
+     * @param data
+     *            Leading part of the data of the resource
+     * @param eTag
+     *            ETag of the resource, or null if the server did not send one
+     * @param lastModified
+     *            Last modification time of the resource in milliseconds since the epoch, or 0 if the server did not
+     *            send one
+     * @return Response with partial data
+     */
+    public static ConditionalResponse partial(final byte[] data, final String eTag, final long lastModified) {
+        if (data == null) {
+            throw new IllegalArgumentException("Data cannot be null");
+        }
+        return new ConditionalResponse(data, null, eTag, lastModified, true);
+    }
+
+    /**
+     * Data of the resource. Null if the resource was not modified.
+     */
+    private final byte[] data;
+    /**
+     * Open stream of the data of the resource. Null if the resource was not modified or its data was read.
+     */
+    private final InputStream stream;
+    /**
+     * ETag of the resource.
+     */
+    private final String eTag;
+    /**
+     * Last modification time of the resource in milliseconds since the epoch.
+     */
+    private final long lastModified;
+    /**
+     * True if the data is only a leading part of the data of the resource.
+     */
+    private final boolean partial;
+
+    /**
+     * Constructs a {@link ConditionalResponse}.
+     *
+     * @param data
+     *            Data of the resource. Null if the resource was not modified or its data is read from a stream.
+     * @param stream
+     *            Open stream of the data of the resource. Null if the resource was not modified or its data was read.
+     * @param eTag
+     *            ETag of the resource
+     * @param lastModified
+     *            Last modification time of the resource in milliseconds since the epoch
+     * @param partial
+     *            True if the data is only a leading part of the data of the resource
+     */
+    private ConditionalResponse(final byte[] data, final InputStream stream, final String eTag,
+        final long lastModified, final boolean partial) {
+        this.data = data;
+        this.stream = stream;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.partial = partial;
+    }
+
+    /**
+     * Gets the data of the resource.
+     *
+     * @return Data of the resource or its leading part, see {@link #isPartial()}, or null if the resource was not
+     *         modified or its data is read from a stream
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets the ETag of the resource.
+     *
+     * @return ETag of the resource, or null if unknown
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Gets the last modification time of the resource.
+     *
+     * @return Milliseconds since the epoch, or 0 if unknown
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets the open stream of the data of the resource.
+     *
+     * @return Stream that the caller must close, or null if the resource was not modified or its data was read
+     */
+    public InputStream getStream() {
+        return stream;
+    }
+
+    /**
+     * Checks if the resource was modified.
+     *
+     * @return True if the response contains the data or a stream of the data of the resource, false if the resource
+     *         was not modified
+     */
+    public boolean isModified() {
+        return data != null || stream != null;
+    }
+
+    /**
+     * Checks if only a leading part of the data of the resource was retrieved.
+     *
+     * @return True if the data is partial, false if it is complete or the resource was not modified
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+}
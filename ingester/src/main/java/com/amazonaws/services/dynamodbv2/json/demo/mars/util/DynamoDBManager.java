@@ -1,19 +1,37 @@
 package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.json.converter.JacksonStreamReader;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 
 /**
  * Provides static utility methods for managing DynamoDB tables.
  */
 public final class DynamoDBManager {
+    /**
+     * Maximum number of items in a single BatchWriteItem request.
+     */
+    public static final int BATCH_WRITE_MAX_ITEMS = 25;
+    /**
+     * Maximum size in bytes of a single BatchWriteItem request.
+     */
+    public static final long BATCH_WRITE_MAX_BYTES = 16 * 1024 * 1024; // 16 MB
     /**
      * Logger for {@link DynamoDBManager}.
      */
@@ -26,6 +44,70 @@ public final class DynamoDBManager {
      * Number of times to to check if a table has become ACTIVE before failing.
      */
     private static final int RETRY_COUNT = 3;
+    /**
+     * Initial amount of time to wait before resubmitting unprocessed items. Doubles with every retry.
+     */
+    private static final long UNPROCESSED_ITEMS_RETRY_DELAY = 50;
+    /**
+     * Number of times to resubmit unprocessed items before failing.
+     */
+    private static final int UNPROCESSED_ITEMS_RETRY_COUNT = 10;
+
+    /**
+     * Writes the provided requests to a table with BatchWriteItem. Unprocessed items returned by DynamoDB are
+     * resubmitted with exponential backoff starting at {@link #UNPROCESSED_ITEMS_RETRY_DELAY} milliseconds.
+     *
+     * @param dynamoDB
+     *            {@link AmazonDynamoDB} used to write the items
+     * @param tableName
+     *            The table to write the items to
+     * @param writeRequests
+     *            At most {@link #BATCH_WRITE_MAX_ITEMS} write requests
+     */
+    public static void batchWriteItems(final AmazonDynamoDB dynamoDB, final String tableName,
+        final List<WriteRequest> writeRequests) {
+        batchWriteItems(dynamoDB, tableName, writeRequests, UNPROCESSED_ITEMS_RETRY_DELAY);
+    }
+
+    /**
+     * Writes the provided requests to a table with BatchWriteItem. Unprocessed items returned by DynamoDB are
+     * resubmitted with exponential backoff.
+     *
+     * @param dynamoDB
+     *            {@link AmazonDynamoDB} used to write the items
+     * @param tableName
+     *            The table to write the items to
+     * @param writeRequests
+     *            At most {@link #BATCH_WRITE_MAX_ITEMS} write requests
+     * @param retryDelay
+     *            Milliseconds to wait before resubmitting unprocessed items the first time
+     */
+    static void batchWriteItems(final AmazonDynamoDB dynamoDB, final String tableName,
+        final List<WriteRequest> writeRequests, final long retryDelay) {
+        Map<String, List<WriteRequest>> requestItems = new HashMap<>();
+        requestItems.put(tableName, writeRequests);
+        long delay = retryDelay;
+        int numTries = 0;
+        while (true) {
+            final BatchWriteItemResult result = dynamoDB.batchWriteItem(requestItems);
+            final Map<String, List<WriteRequest>> unprocessed = result.getUnprocessedItems();
+            if (unprocessed == null || unprocessed.isEmpty()) {
+                return;
+            }
+            if (numTries >= UNPROCESSED_ITEMS_RETRY_COUNT) {
+                throw new IllegalStateException("Could not write " + unprocessed.get(tableName).size()
+                    + " items to table " + tableName + " after " + numTries + " retries");
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                LOGGER.severe(e.getMessage());
+            }
+            delay *= 2;
+            numTries++;
+            requestItems = unprocessed;
+        }
+    }
 
     /**
      * Creates DynamoDB table. If the table already exists, it validates the key schema. If the key schemas match, a
@@ -87,6 +169,36 @@ public final class DynamoDBManager {
         return TableStatus.fromValue(dynamoDB.describeTable(tableName).getTable().getTableStatus());
     }
 
+    /**
+     * Loads all remaining items from a {@link JacksonStreamReader} into a table. Items are read in batches that fit
+     * into a single BatchWriteItem request, so only one batch is held in memory at a time.
+     *
+     * @param dynamoDB
+     *            {@link AmazonDynamoDB} used to write the items
+     * @param tableName
+     *            The table to load the items into
+     * @param reader
+     *            Source of the items to load
+     * @return The number of items loaded
+     * @throws IOException
+     *             Error reading items from the stream
+     */
+    public static long loadItems(final AmazonDynamoDB dynamoDB, final String tableName,
+        final JacksonStreamReader reader) throws IOException {
+        final List<Map<String, AttributeValue>> batch = new ArrayList<>(BATCH_WRITE_MAX_ITEMS);
+        long count = 0;
+        while (reader.getNextBatch(batch, BATCH_WRITE_MAX_ITEMS, BATCH_WRITE_MAX_BYTES) > 0) {
+            final List<WriteRequest> writeRequests = new ArrayList<>(batch.size());
+            for (final Map<String, AttributeValue> item : batch) {
+                writeRequests.add(new WriteRequest(new PutRequest(item)));
+            }
+            batchWriteItems(dynamoDB, tableName, writeRequests);
+            count += batch.size();
+            LOGGER.fine("Loaded " + count + " items into " + tableName);
+        }
+        return count;
+    }
+
     /**
      * Blocks until the specified table becomes active or {@link #RETRY_COUNT} checks. There is a delay of
      * {@link #RETRY_DELAY} milliseconds between checks.
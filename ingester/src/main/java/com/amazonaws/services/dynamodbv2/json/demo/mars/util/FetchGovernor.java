@@ -0,0 +1,384 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Governs the HTTP requests made to each host. Per host, the governor
+ * </p>
+ * <ul>
+ * <li>limits the request rate with a token bucket,</li>
+ * <li>limits the number of requests in flight with an additive-increase/multiplicative-decrease (AIMD) limit that
+ * grows with successful responses and halves when the host throttles with 429 or 503,</li>
+ * <li>opens a circuit breaker after consecutive failures, failing requests fast until a single trial request after the
+ * open time succeeds.</li>
+ * </ul>
+ * <p>
+ * It also computes exponential backoff delays with full jitter for retrying requests that failed transiently. Each
+ * call to {@link #acquire(URL)} must be matched by a call to {@link #release(URL, int, boolean)}.
+ * </p>
+ */
+public class FetchGovernor {
+    /**
+     * State of the requests to one host.
+     */
+    private static final class Host {
+        /**
+         * Available tokens of the token bucket. Negative if tokens are reserved by waiting requests.
+         */
+        private double tokens;
+        /**
+         * Time of the last token refill in nanoseconds.
+         */
+        private long lastRefill = System.nanoTime();
+        /**
+         * Current limit of requests in flight.
+         */
+        private double concurrencyLimit;
+        /**
+         * Number of requests in flight.
+         */
+        private int inFlight;
+        /**
+         * Number of consecutive failed requests.
+         */
+        private int consecutiveFailures;
+        /**
+         * Time in milliseconds since the epoch until which the circuit breaker is open.
+         */
+        private long openUntil;
+
+        /**
+         * Constructs a {@link Host}.
+         *
+         * @param tokens
+         *            Initial tokens of the token bucket
+         * @param concurrencyLimit
+         *            Initial limit of requests in flight
+         */
+        Host(final double tokens, final double concurrencyLimit) {
+            this.tokens = tokens;
+            this.concurrencyLimit = concurrencyLimit;
+        }
+    }
+
+    /**
+     * Default number of requests per second per host.
+     */
+    public static final int DEFAULT_RATE = 50;
+    /**
+     * Default maximum number of retries of a request.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    /**
+     * Default backoff in milliseconds before the first retry.
+     */
+    public static final long DEFAULT_BASE_BACKOFF = 200;
+    /**
+     * Default maximum backoff in milliseconds before a retry.
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 10 * 1000; // 10 seconds
+    /**
+     * Default number of consecutive failures that opens the circuit breaker of a host.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /**
+     * Default time in milliseconds the circuit breaker of a host stays open.
+     */
+    public static final long DEFAULT_OPEN_TIME = 30 * 1000; // 30 seconds
+    /**
+     * Outcome of a request that failed without a response.
+     */
+    public static final int FAILED = -1;
+    /**
+     * Outcome of a request that was not sent.
+     */
+    public static final int NOT_SENT = 0;
+    /**
+     * HTTP status code Too Many Requests.
+     */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /**
+     * Maximum delay in milliseconds requested by a server with a Retry-After header that is honored, so a bogus value
+     * does not stall the caller indefinitely.
+     */
+    private static final long MAX_RETRY_AFTER = 5 * 60 * 1000; // 5 minutes
+
+    /**
+     * Gets the key of the host of a URL.
+     *
+     * @param url
+     *            URL
+     * @return Protocol, host, and port of the URL
+     */
+    private static String getHostKey(final URL url) {
+        final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * Checks if a request that received a response code can be retried.
+     *
+     * @param responseCode
+     *            HTTP response code
+     * @return True if the response indicates a transient failure or throttling
+     */
+    public static boolean isRetryable(final int responseCode) {
+        switch (responseCode) {
+            case HTTP_TOO_MANY_REQUESTS:
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if a response code indicates that the host throttles requests.
+     *
+     * @param responseCode
+     *            HTTP response code
+     * @return True for 429 and 503
+     */
+    private static boolean isThrottled(final int responseCode) {
+        return responseCode == HTTP_TOO_MANY_REQUESTS || responseCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * Number of requests per second per host.
+     */
+    private final int rate;
+    /**
+     * Maximum number of requests in flight per host.
+     */
+    private final int maxConcurrency;
+    /**
+     * Maximum number of retries of a request.
+     */
+    private final int maxRetries;
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    private final long baseBackoff;
+    /**
+     * Maximum backoff in milliseconds before a retry.
+     */
+    private final long maxBackoff;
+    /**
+     * Number of consecutive failures that opens the circuit breaker of a host.
+     */
+    private final int failureThreshold;
+    /**
+     * Time in milliseconds the circuit breaker of a host stays open.
+     */
+    private final long openTime;
+    /**
+     * State of the requests, by host.
+     */
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@link FetchGovernor} with the default settings.
+     */
+    public FetchGovernor() {
+        this(DEFAULT_RATE, HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_RETRIES,
+            DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_TIME);
+    }
+
+    /**
+     * Constructs a {@link FetchGovernor}.
+     *
+     * @param rate
+     *            Number of requests per second per host. Also the burst size of the token bucket.
+     * @param maxConcurrency
+     *            Maximum number of requests in flight per host. The AIMD limit starts at and never exceeds this value.
+     * @param maxRetries
+     *            Maximum number of retries of a request
+     * @param baseBackoff
+     *            Backoff in milliseconds before the first retry. Doubles with each retry.
+     * @param maxBackoff
+     *            Maximum backoff in milliseconds before a retry
+     * @param failureThreshold
+     *            Number of consecutive failures that opens the circuit breaker of a host
+     * @param openTime
+     *            Time in milliseconds the circuit breaker of a host stays open
+     */
+    public FetchGovernor(final int rate, final int maxConcurrency, final int maxRetries, final long baseBackoff,
+        final long maxBackoff, final int failureThreshold, final long openTime) {
+        if (rate < 1 || maxConcurrency < 1 || failureThreshold < 1) {
+            throw new IllegalArgumentException("Rate, concurrency, and failure threshold must be positive");
+        }
+        if (maxRetries < 0 || baseBackoff < 0 || maxBackoff < baseBackoff || openTime < 0) {
+            throw new IllegalArgumentException("Invalid retry or circuit breaker settings");
+        }
+        this.rate = rate;
+        this.maxConcurrency = maxConcurrency;
+        this.maxRetries = maxRetries;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+    }
+
+    /**
+     * Waits until a request to the host of a URL is allowed by the circuit breaker, the AIMD limit, and the token
+     * bucket.
+     *
+     * @param url
+     *            URL of the request
+     * @return True if the request is the trial request of a half open circuit breaker, which must be passed to
+     *         {@link #release(URL, int, boolean)}
+     * @throws IOException
+     *             The circuit breaker of the host is open, or the thread was interrupted while waiting
+     */
+    public boolean acquire(final URL url) throws IOException {
+        final Host host = getHost(url);
+        final long wait;
+        final boolean trial;
+        synchronized (host) {
+            final long now = System.currentTimeMillis();
+            trial = host.consecutiveFailures >= failureThreshold;
+            if (trial) {
+                if (now < host.openUntil) {
+                    throw new IOException("Circuit breaker open for " + getHostKey(url) + " after "
+                        + host.consecutiveFailures + " consecutive failures");
+                }
+                // Half open: let this request through as a trial and keep failing others fast until it completes
+                host.openUntil = now + openTime;
+            }
+            while (host.inFlight >= (int) host.concurrencyLimit) {
+                try {
+                    host.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to request " + url);
+                }
+            }
+            host.inFlight++;
+            // Refill the token bucket and reserve a token
+            final long nanos = System.nanoTime();
+            host.tokens = Math.min(rate, host.tokens + (nanos - host.lastRefill) * rate
+                / (double) TimeUnit.SECONDS.toNanos(1));
+            host.lastRefill = nanos;
+            host.tokens--;
+            wait = host.tokens >= 0 ? 0 : (long) Math.ceil(-host.tokens * TimeUnit.SECONDS.toMillis(1) / rate);
+        }
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (final InterruptedException e) {
+                release(url, NOT_SENT, trial);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to request " + url);
+            }
+        }
+        return trial;
+    }
+
+    /**
+     * Gets the current limit of requests in flight to the host of a URL.
+     *
+     * @param url
+     *            URL
+     * @return Current AIMD limit
+     */
+    public int getConcurrencyLimit(final URL url) {
+        final Host host = getHost(url);
+        synchronized (host) {
+            return (int) host.concurrencyLimit;
+        }
+    }
+
+    /**
+     * Gets the state of the requests to the host of a URL.
+     *
+     * @param url
+     *            URL
+     * @return State of the host
+     */
+    private Host getHost(final URL url) {
+        final String key = getHostKey(url);
+        Host host = hosts.get(key);
+        if (host == null) {
+            final Host newHost = new Host(rate, maxConcurrency);
+            host = hosts.putIfAbsent(key, newHost);
+            if (host == null) {
+                host = newHost;
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Gets the maximum number of retries of a request.
+     *
+     * @return Maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the delay before retrying a request. The delay is drawn uniformly between zero and an exponentially growing
+     * cap, so that clients that failed together do not retry together.
+     *
+     * @param retry
+     *            Number of the retry, starting at 1
+     * @param retryAfter
+     *            Delay in milliseconds requested by the server with a Retry-After header, or 0 if none. The request is
+     *            not retried earlier, even if the delay exceeds the maximum backoff.
+     * @return Delay in milliseconds
+     */
+    public long getRetryDelay(final int retry, final long retryAfter) {
+        final long cap = Math.min(maxBackoff, baseBackoff << Math.min(Math.max(0, retry - 1), 30));
+        final long delay = cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+        return Math.max(delay, Math.min(retryAfter, MAX_RETRY_AFTER));
+    }
+
+    /**
+     * Records the outcome of a request acquired with {@link #acquire(URL)} and lets the next request to the host
+     * through.
+     *
+     * @param url
+     *            URL of the request
+     * @param responseCode
+     *            HTTP response code, {@link #FAILED} if the request failed without a response, or {@link #NOT_SENT} if
+     *            the request was not sent
+     * @param trial
+     *            The value returned by {@link #acquire(URL)} for the request
+     */
+    public void release(final URL url, final int responseCode, final boolean trial) {
+        final Host host = getHost(url);
+        synchronized (host) {
+            host.inFlight--;
+            if (responseCode == NOT_SENT) {
+                // No outcome to record. An abandoned trial lets the next request through as a new trial.
+                if (trial && host.consecutiveFailures >= failureThreshold) {
+                    host.openUntil = 0;
+                }
+            } else if (responseCode == FAILED || responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                host.consecutiveFailures++;
+                if (host.consecutiveFailures >= failureThreshold) {
+                    host.openUntil = System.currentTimeMillis() + openTime;
+                }
+            } else if (responseCode != HTTP_TOO_MANY_REQUESTS) {
+                host.consecutiveFailures = 0;
+                host.concurrencyLimit = Math.min(maxConcurrency, host.concurrencyLimit + 1 / host.concurrencyLimit);
+            }
+            if (isThrottled(responseCode)) {
+                host.concurrencyLimit = Math.max(1, host.concurrencyLimit / 2);
+            }
+            host.notifyAll();
+        }
+    }
+}
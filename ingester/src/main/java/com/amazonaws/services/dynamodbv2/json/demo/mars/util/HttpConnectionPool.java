@@ -0,0 +1,238 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * <p>
+ * Limits the number of concurrent HTTP connections in total and per host, and lets the JDK keep-alive cache reuse
+ * connections between requests. A connection opened with {@link #openConnection(URL, int)} must be returned with
+ * {@link #releaseConnection(URL, HttpURLConnection, boolean)} once its response is consumed.
+ * </p>
+ * <p>
+ * A released connection whose response body was fully read and closed stays open in the JDK keep-alive cache for the
+ * next request to the same host. The keep-alive cache is shared by the whole JVM: it keeps the number of idle
+ * connections per host given by the {@code http.maxConnections} system property, see
+ * {@link #setMaxIdleConnectionsPerHost(int)}, and closes idle connections after the timeout announced by the server, or
+ * after 5 seconds.
+ * </p>
+ */
+public class HttpConnectionPool {
+    /**
+     * Default maximum number of concurrent connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    /**
+     * Default maximum number of concurrent connections per host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+    /**
+     * System property for the maximum number of idle connections kept per host.
+     */
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    /**
+     * Gets the key of the host of a URL. Connections to the same key share the per host limit.
+     *
+     * @param url
+     *            URL
+     * @return Protocol, host, and port of the URL
+     */
+    private static String getHostKey(final URL url) {
+        final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * Sets the number of idle connections per host that the JDK keep-alive cache keeps open for reuse, unless it was
+     * already set on the command line. The keep-alive cache is shared by all HTTP clients of the JVM and reads the
+     * setting when the first HTTP connection is opened, so it must be set once, before any HTTP request is made.
+     *
+     * @param maxIdleConnections
+     *            Maximum number of idle connections per host
+     */
+    public static void setMaxIdleConnectionsPerHost(final int maxIdleConnections) {
+        if (maxIdleConnections < 1) {
+            throw new IllegalArgumentException("Number of idle connections must be positive");
+        }
+        if (System.getProperty(MAX_IDLE_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_IDLE_CONNECTIONS_PROPERTY, Integer.toString(maxIdleConnections));
+        }
+    }
+
+    /**
+     * Maximum number of concurrent connections.
+     */
+    private final int maxConnections;
+    /**
+     * Maximum number of concurrent connections per host.
+     */
+    private final int maxConnectionsPerHost;
+    /**
+     * Permits for concurrent connections.
+     */
+    private final Semaphore connections;
+    /**
+     * Permits for concurrent connections, by host.
+     */
+    private final ConcurrentMap<String, Semaphore> hostConnections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@link HttpConnectionPool} with the default limits.
+     */
+    public HttpConnectionPool() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    /**
+     * Constructs a {@link HttpConnectionPool}.
+     *
+     * @param maxConnections
+     *            Maximum number of concurrent connections
+     * @param maxConnectionsPerHost
+     *            Maximum number of concurrent connections per host
+     */
+    public HttpConnectionPool(final int maxConnections, final int maxConnectionsPerHost) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("Connection limits must be positive");
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        connections = new Semaphore(maxConnections);
+    }
+
+    /**
+     * Gets the number of connections that can be opened without waiting.
+     *
+     * @return Number of available connections
+     */
+    public int getAvailableConnections() {
+        return connections.availablePermits();
+    }
+
+    /**
+     * Gets the permits for concurrent connections to the host of a URL.
+     *
+     * @param url
+     *            URL
+     * @return Permits for the host
+     */
+    private Semaphore getHostConnections(final URL url) {
+        final String key = getHostKey(url);
+        Semaphore permits = hostConnections.get(key);
+        if (permits == null) {
+            final Semaphore newPermits = new Semaphore(maxConnectionsPerHost);
+            permits = hostConnections.putIfAbsent(key, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Gets the maximum number of concurrent connections.
+     *
+     * @return Maximum number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Gets the maximum number of concurrent connections per host.
+     *
+     * @return Maximum number of connections per host
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Opens a connection to a URL, waiting until the connection limits allow it. The connection must be released with
+     * {@link #releaseConnection(URL, HttpURLConnection, boolean)}, even if the request fails.
+     *
+     * @param url
+     *            The URL to connect to
+     * @param connectTimeout
+     *            Connection timeout
+     * @return Connection that is not yet connected
+     * @throws IOException
+     *             Interrupted while waiting for a connection, or error opening the connection
+     * @throws UnsupportedOperationException
+     *             URL is not an HTTP URL
+     */
+    public HttpURLConnection openConnection(final URL url, final int connectTimeout) throws IOException {
+        final Semaphore hostPermits = getHostConnections(url);
+        try {
+            hostPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + url);
+        }
+        try {
+            connections.acquire();
+        } catch (final InterruptedException e) {
+            hostPermits.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + url);
+        }
+        boolean opened = false;
+        try {
+            final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(connectTimeout);
+            opened = true;
+            return conn;
+        } catch (final ClassCastException e) {
+            throw new UnsupportedOperationException("URL is not a valid HTTP URL");
+        } finally {
+            if (!opened) {
+                connections.release();
+                hostPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Releases a connection opened with {@link #openConnection(URL, int)}. A reusable connection is returned to the
+     * keep-alive cache. Any unread error response is consumed so that the connection can be reused. A connection that
+     * is not reusable is closed.
+     *
+     * @param url
+     *            The URL the connection was opened for
+     * @param conn
+     *            The connection
+     * @param reuse
+     *            True if the response was consumed and the connection can be reused
+     */
+    public void releaseConnection(final URL url, final HttpURLConnection conn, final boolean reuse) {
+        try {
+            if (reuse) {
+                final InputStream error = conn.getErrorStream();
+                if (error != null) {
+                    try {
+                        final byte[] buf = new byte[1024];
+                        while (error.read(buf) != -1) {
+                            ; // Drain the error response
+                        }
+                    } finally {
+                        error.close();
+                    }
+                }
+            } else {
+                conn.disconnect();
+            }
+        } catch (final IOException e) {
+            conn.disconnect();
+        } finally {
+            connections.release();
+            getHostConnections(url).release();
+        }
+    }
+}
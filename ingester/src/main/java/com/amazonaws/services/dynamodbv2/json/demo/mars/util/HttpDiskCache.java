@@ -0,0 +1,482 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Persistent cache of HTTP response bodies on the local disk. Each body is stored with the validators (ETag and
+ * Last-Modified) it was served with, under a file name derived from the SHA-256 hash of its URL. Cached bodies are
+ * revalidated with conditional requests, so an unchanged resource costs a request without a response body, and the
+ * cache survives restarts of the ingester.
+ * </p>
+ * <p>
+ * The total size of the cached bodies is capped. When the cap is exceeded, the least recently used bodies are evicted.
+ * Responses without validators are not cached because they cannot be revalidated.
+ * </p>
+ */
+public class HttpDiskCache {
+    /**
+     * Cached response body and its validators.
+     */
+    public static final class Entry {
+        /**
+         * File containing the body.
+         */
+        private final File body;
+        /**
+         * Length of the body in bytes.
+         */
+        private final long length;
+        /**
+         * ETag of the body, or null if unknown.
+         */
+        private final String eTag;
+        /**
+         * Last modification time of the body in milliseconds since the epoch, or 0 if unknown.
+         */
+        private final long lastModified;
+
+        /**
+         * Constructs an {@link Entry}.
+         *
+         * @param body
+         *            File containing the body
+         * @param length
+         *            Length of the body in bytes
+         * @param eTag
+         *            ETag of the body, or null if unknown
+         * @param lastModified
+         *            Last modification time of the body in milliseconds since the epoch, or 0 if unknown
+         */
+        Entry(final File body, final long length, final String eTag, final long lastModified) {
+            this.body = body;
+            this.length = length;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Gets the ETag of the body.
+         *
+         * @return ETag, or null if unknown
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Gets the last modification time of the body.
+         *
+         * @return Milliseconds since the epoch, or 0 if unknown
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Gets the length of the body.
+         *
+         * @return Length in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Opens the body for reading.
+         *
+         * @return Stream of the body
+         * @throws IOException
+         *             The body was evicted or cannot be read
+         */
+        public InputStream open() throws IOException {
+            return new FileInputStream(body);
+        }
+    }
+
+    /**
+     * Logger for {@link HttpDiskCache}.
+     */
+    private static final Logger LOGGER = Logger.getLogger(HttpDiskCache.class.getName());
+    /**
+     * Default cap of the total size of cached bodies in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024; // 1 GB
+    /**
+     * File name suffix of a cached body.
+     */
+    private static final String BODY_SUFFIX = ".body";
+    /**
+     * File name suffix of the validators of a cached body.
+     */
+    private static final String META_SUFFIX = ".meta";
+    /**
+     * File name suffix of a body that is being written.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * Metadata key for the URL of a cached body.
+     */
+    private static final String URL_KEY = "url";
+    /**
+     * Metadata key for the ETag of a cached body.
+     */
+    private static final String ETAG_KEY = "etag";
+    /**
+     * Metadata key for the last modification time of a cached body.
+     */
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * Size of the buffer used to read the rest of a body that was not read completely.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Gets the cache key of a URL.
+     *
+     * @param url
+     *            URL
+     * @return Hexadecimal SHA-256 hash of the URL
+     */
+    private static String getKey(final URL url) {
+        final byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(url.toExternalForm().getBytes(StandardCharsets.UTF_8));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        final char[] key = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            key[2 * i] = HEX_DIGITS[hash[i] >> 4 & 0xf];
+            key[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Directory containing the cached bodies.
+     */
+    private final File directory;
+    /**
+     * Cap of the total size of cached bodies in bytes.
+     */
+    private final long maxBytes;
+    /**
+     * Cached entries by key, from least to most recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Total size of cached bodies in bytes.
+     */
+    private long totalBytes;
+
+    /**
+     * Constructs a {@link HttpDiskCache} and indexes the bodies cached in the directory by previous runs.
+     *
+     * @param directory
+     *            Directory containing the cached bodies. Created if it does not exist.
+     * @param maxBytes
+     *            Cap of the total size of cached bodies in bytes
+     * @throws IOException
+     *             The directory cannot be created or read
+     */
+    public HttpDiskCache(final File directory, final long maxBytes) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * Caches the body of a response while it is read. The body is stored when the returned stream is closed; bytes the
+     * caller did not read, such as whitespace after a JSON document, are read from the response first. A body that
+     * fails to be read completely or exceeds the cap of the cache is discarded. Responses without validators are not
+     * cached.
+     *
+     * @param url
+     *            URL of the response
+     * @param in
+     *            Stream of the response body
+     * @param eTag
+     *            ETag of the response, or null if the server did not send one
+     * @param lastModified
+     *            Last modification time of the response in milliseconds since the epoch, or 0 if the server did not
+     *            send one
+     * @return Stream of the response body that stores the body in the cache
+     * @throws IOException
+     *             Error creating the cache file
+     */
+    public InputStream cache(final URL url, final InputStream in, final String eTag, final long lastModified)
+        throws IOException {
+        if (eTag == null && lastModified <= 0) {
+            return in;
+        }
+        final String key = getKey(url);
+        final File temp = File.createTempFile(key, TEMP_SUFFIX, directory);
+        final OutputStream out = new FileOutputStream(temp);
+        return new FilterInputStream(in) {
+            private long length = 0;
+            private boolean complete = false;
+            private boolean failed = false;
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    drain();
+                    super.close();
+                } finally {
+                    try {
+                        out.close();
+                        if (complete && !failed) {
+                            store(url, key, temp, length, eTag, lastModified);
+                        }
+                    } catch (final IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not cache " + url, e);
+                    } finally {
+                        Files.deleteIfExists(temp.toPath());
+                    }
+                }
+            }
+
+            /**
+             * Reads the rest of the body into the cache file, unless it cannot be cached anyway.
+             */
+            private void drain() {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                try {
+                    while (!complete && !failed && length <= maxBytes) {
+                        read(buffer, 0, buffer.length);
+                    }
+                } catch (final IOException e) {
+                    LOGGER.log(Level.FINE, "Could not read the rest of " + url, e);
+                    failed = true;
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b == -1) {
+                    complete = true;
+                } else {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int n = super.read(b, off, len);
+                if (n == -1) {
+                    complete = true;
+                } else {
+                    write(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(final long n) throws IOException {
+                // Skipped bytes are not cached
+                failed = true;
+                return super.skip(n);
+            }
+
+            private void write(final byte[] b, final int off, final int len) {
+                if (failed) {
+                    return;
+                }
+                try {
+                    out.write(b, off, len);
+                    length += len;
+                } catch (final IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not cache " + url, e);
+                    failed = true;
+                }
+            }
+        };
+    }
+
+    /**
+     * Deletes the files of an entry.
+     *
+     * @param key
+     *            Cache key of the entry
+     */
+    private void deleteFiles(final String key) {
+        new File(directory, key + META_SUFFIX).delete();
+        new File(directory, key + BODY_SUFFIX).delete();
+    }
+
+    /**
+     * Removes least recently used entries until the total size of cached bodies is within the cap.
+     */
+    private synchronized void evict() {
+        final Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            final Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue().getLength();
+            deleteFiles(eldest.getKey());
+        }
+    }
+
+    /**
+     * Gets the cached body of a URL and marks it as recently used.
+     *
+     * @param url
+     *            URL
+     * @return Cached body, or null if the URL is not cached
+     */
+    public synchronized Entry get(final URL url) {
+        final Entry entry = entries.get(getKey(url));
+        if (entry != null) {
+            // Persist the access order for the next run
+            entry.body.setLastModified(System.currentTimeMillis());
+        }
+        return entry;
+    }
+
+    /**
+     * Gets the cap of the total size of cached bodies.
+     *
+     * @return Size in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the total size of cached bodies.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Indexes the bodies cached in the directory, from least to most recently used, and removes incomplete files.
+     *
+     * @throws IOException
+     *             The directory cannot be read
+     */
+    private void load() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot read cache directory " + directory);
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(final File f1, final File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(BODY_SUFFIX)) {
+                final String key = name.substring(0, name.length() - BODY_SUFFIX.length());
+                final File meta = new File(directory, key + META_SUFFIX);
+                final Properties properties = new Properties();
+                try (InputStream in = new FileInputStream(meta)) {
+                    properties.load(in);
+                    final String eTag = properties.getProperty(ETAG_KEY);
+                    final long lastModified = Long.parseLong(properties.getProperty(LAST_MODIFIED_KEY, "0"));
+                    final Entry entry = new Entry(file, file.length(), eTag, lastModified);
+                    entries.put(key, entry);
+                    totalBytes += entry.getLength();
+                } catch (final IOException | IllegalArgumentException e) {
+                    // Body without valid validators
+                    deleteFiles(key);
+                }
+            } else if (name.endsWith(META_SUFFIX)) {
+                final String key = name.substring(0, name.length() - META_SUFFIX.length());
+                if (!new File(directory, key + BODY_SUFFIX).exists()) {
+                    file.delete();
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Stores a completely read body in the cache.
+     *
+     * @param url
+     *            URL of the body
+     * @param key
+     *            Cache key of the URL
+     * @param temp
+     *            File containing the body
+     * @param length
+     *            Length of the body in bytes
+     * @param eTag
+     *            ETag of the body, or null if unknown
+     * @param lastModified
+     *            Last modification time of the body in milliseconds since the epoch, or 0 if unknown
+     * @throws IOException
+     *             Error writing the cache files
+     */
+    private synchronized void store(final URL url, final String key, final File temp, final long length,
+        final String eTag, final long lastModified) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(URL_KEY, url.toExternalForm());
+        if (eTag != null) {
+            properties.setProperty(ETAG_KEY, eTag);
+        }
+        properties.setProperty(LAST_MODIFIED_KEY, Long.toString(lastModified));
+        final File body = new File(directory, key + BODY_SUFFIX);
+        final File meta = new File(directory, key + META_SUFFIX);
+        final File metaTemp = new File(directory, key + META_SUFFIX + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(metaTemp)) {
+            properties.store(out, null);
+        }
+        final Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.getLength();
+        }
+        // A body without validators is discarded by the next run if the moves are interrupted
+        Files.deleteIfExists(meta.toPath());
+        Files.move(temp.toPath(), body.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(metaTemp.toPath(), meta.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        entries.put(key, new Entry(body, length, eTag, lastModified));
+        totalBytes += length;
+        evict();
+    }
+}
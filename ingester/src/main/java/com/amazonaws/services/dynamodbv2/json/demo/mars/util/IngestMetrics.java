@@ -0,0 +1,114 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.services.dynamodbv2.json.converter.ItemSize;
+
+/**
+ * Thread-safe counters for items written to DynamoDB during an ingestion run. Item sizes are those computed by the
+ * converter, so the consumed write capacity can be forecast without a round trip to DynamoDB.
+ */
+public class IngestMetrics {
+    /**
+     * Number of items written.
+     */
+    private final AtomicLong itemsWritten = new AtomicLong();
+    /**
+     * Number of items rejected for exceeding the DynamoDB item size limit.
+     */
+    private final AtomicLong itemsRejected = new AtomicLong();
+    /**
+     * Total DynamoDB size of the items written.
+     */
+    private final AtomicLong bytesWritten = new AtomicLong();
+    /**
+     * Write capacity units consumed by the items written.
+     */
+    private final AtomicLong writeCapacityUnits = new AtomicLong();
+    /**
+     * Number of sols whose images were submitted for ingestion.
+     */
+    private final AtomicLong sols = new AtomicLong();
+
+    /**
+     * Gets the total DynamoDB size of the items written.
+     *
+     * @return Size in bytes
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Gets the number of items rejected for exceeding the DynamoDB item size limit.
+     *
+     * @return Number of rejected items
+     */
+    public long getItemsRejected() {
+        return itemsRejected.get();
+    }
+
+    /**
+     * Gets the number of items written.
+     *
+     * @return Number of items written
+     */
+    public long getItemsWritten() {
+        return itemsWritten.get();
+    }
+
+    /**
+     * Gets the number of sols whose images were submitted for ingestion.
+     *
+     * @return Number of sols
+     */
+    public long getSols() {
+        return sols.get();
+    }
+
+    /**
+     * Gets the write capacity units consumed by the items written.
+     *
+     * @return Write capacity units
+     */
+    public long getWriteCapacityUnits() {
+        return writeCapacityUnits.get();
+    }
+
+    /**
+     * Records an item that was rejected for exceeding the DynamoDB item size limit.
+     */
+    public void recordRejected() {
+        itemsRejected.incrementAndGet();
+    }
+
+    /**
+     * Records a sol whose images were submitted for ingestion.
+     */
+    public void recordSol() {
+        sols.incrementAndGet();
+    }
+
+    /**
+     * Records an item that was written to DynamoDB.
+     *
+     * @param size
+     *            DynamoDB size of the item
+     */
+    public void recordWritten(final ItemSize size) {
+        itemsWritten.incrementAndGet();
+        bytesWritten.addAndGet(size.getBytes());
+        writeCapacityUnits.addAndGet(size.getWriteCapacityUnits());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final long numSols = getSols();
+        final long wcu = getWriteCapacityUnits();
+        return getItemsWritten() + " items written (" + getBytesWritten() + " bytes, " + wcu + " WCU, "
+            + (numSols == 0 ? 0 : wcu / numSols) + " WCU per sol), " + getItemsRejected() + " items rejected";
+    }
+}
@@ -0,0 +1,342 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+
+/**
+ * Utilities for extracting low resolution images from the leading bytes of a JPEG file: the thumbnail embedded in its
+ * EXIF segment, and the complete scans of a progressive JPEG. Both work on truncated files and return null when the
+ * data does not contain what they look for.
+ */
+public final class JPEGUtils {
+    /**
+     * Marker prefix byte.
+     */
+    private static final int MARKER = 0xFF;
+    /**
+     * Start of image marker.
+     */
+    private static final int SOI = 0xD8;
+    /**
+     * End of image marker.
+     */
+    private static final int EOI = 0xD9;
+    /**
+     * Start of scan marker.
+     */
+    private static final int SOS = 0xDA;
+    /**
+     * APP1 marker of the EXIF segment.
+     */
+    private static final int APP1 = 0xE1;
+    /**
+     * First restart marker.
+     */
+    private static final int RST0 = 0xD0;
+    /**
+     * Last restart marker.
+     */
+    private static final int RST7 = 0xD7;
+    /**
+     * Temporary marker without a segment.
+     */
+    private static final int TEM = 0x01;
+    /**
+     * Identifier at the start of an EXIF segment.
+     */
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0 };
+    /**
+     * TIFF tag of the offset of the JPEG thumbnail.
+     */
+    private static final int JPEG_INTERCHANGE_FORMAT = 0x0201;
+    /**
+     * TIFF tag of the length of the JPEG thumbnail.
+     */
+    private static final int JPEG_INTERCHANGE_FORMAT_LENGTH = 0x0202;
+    /**
+     * Length of a TIFF IFD entry.
+     */
+    private static final int IFD_ENTRY_LENGTH = 12;
+
+    /**
+     * Gets the thumbnail embedded in the EXIF segment of a JPEG file.
+     *
+     * @param data
+     *            Leading bytes of a JPEG file
+     * @return Embedded JPEG thumbnail, or null if there is none or it is not completely in the data
+     */
+    public static byte[] getExifThumbnail(final byte[] data) {
+        if (!isJPEG(data)) {
+            return null;
+        }
+        int i = 2;
+        while (i + 4 <= data.length && (data[i] & 0xFF) == MARKER) {
+            final int marker = data[i + 1] & 0xFF;
+            if (marker == SOS || marker == EOI) {
+                return null;
+            }
+            final int end = i + 2 + readShort(data, i + 2, false);
+            if (marker == APP1 && startsWith(data, i + 4, EXIF_HEADER)) {
+                return getTIFFThumbnail(data, i + 4 + EXIF_HEADER.length, Math.min(end, data.length));
+            }
+            i = end;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the size of the image of a JPEG file from its frame header.
+     *
+     * @param data
+     *            Leading bytes of a JPEG file
+     * @return Width and height of the image, or null if the data does not contain a frame header
+     */
+    public static Dimension getImageSize(final byte[] data) {
+        if (!isJPEG(data)) {
+            return null;
+        }
+        int i = 2;
+        while (i + 4 <= data.length && (data[i] & 0xFF) == MARKER) {
+            final int marker = data[i + 1] & 0xFF;
+            if (marker == SOS || marker == EOI) {
+                return null;
+            }
+            if (isStartOfFrame(marker) && i + 9 <= data.length) {
+                return new Dimension(readShort(data, i + 7, false), readShort(data, i + 5, false));
+            }
+            i += 2 + readShort(data, i + 2, false);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the complete scans of a progressive JPEG file. The first scans of a progressive JPEG contain the whole
+     * image at a low resolution, so they can be decoded into a thumbnail without the rest of the file.
+     *
+     * @param data
+     *            Leading bytes of a progressive JPEG file
+     * @return JPEG file of the complete scans in the data, terminated by an end of image marker, or null if the file is
+     *         not progressive or the data does not contain a complete scan
+     */
+    public static byte[] getProgressiveScans(final byte[] data) {
+        if (!isJPEG(data)) {
+            return null;
+        }
+        boolean progressive = false;
+        int scansEnd = -1;
+        int i = 2;
+        while (i + 1 < data.length && (data[i] & 0xFF) == MARKER) {
+            final int marker = data[i + 1] & 0xFF;
+            if (marker == MARKER) {
+                // Fill byte
+                i++;
+                continue;
+            } else if (marker == EOI) {
+                scansEnd = i;
+                break;
+            } else if (marker == TEM || marker >= RST0 && marker <= RST7) {
+                i += 2;
+                continue;
+            } else if (i + 4 > data.length) {
+                break;
+            }
+            final int end = i + 2 + readShort(data, i + 2, false);
+            if (isStartOfFrame(marker)) {
+                progressive = isProgressive(marker);
+            } else if (marker == SOS) {
+                final int scanEnd = skipEntropyCodedData(data, end);
+                if (scanEnd == -1) {
+                    // Truncated scan
+                    break;
+                }
+                scansEnd = scanEnd;
+                i = scanEnd;
+                continue;
+            }
+            i = end;
+        }
+        if (!progressive || scansEnd == -1) {
+            return null;
+        }
+        final byte[] scans = Arrays.copyOf(data, scansEnd + 2);
+        scans[scansEnd] = (byte) MARKER;
+        scans[scansEnd + 1] = (byte) EOI;
+        return scans;
+    }
+
+    /**
+     * Gets the JPEG thumbnail referenced by the second image file directory of TIFF data.
+     *
+     * @param data
+     *            Data containing the TIFF data
+     * @param tiff
+     *            Offset of the TIFF data in the data
+     * @param end
+     *            End of the TIFF data in the data
+     * @return JPEG thumbnail, or null if there is none or it is not completely in the data
+     */
+    private static byte[] getTIFFThumbnail(final byte[] data, final int tiff, final int end) {
+        if (tiff + 8 > end) {
+            return null;
+        }
+        final boolean littleEndian;
+        if (data[tiff] == 'I' && data[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (data[tiff] == 'M' && data[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return null;
+        }
+        // Skip IFD0 to IFD1, which describes the thumbnail
+        final long ifd0 = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd0 + 2 > end) {
+            return null;
+        }
+        final long next = ifd0 + 2 + readShort(data, (int) ifd0, littleEndian) * IFD_ENTRY_LENGTH;
+        if (next + 4 > end) {
+            return null;
+        }
+        final long ifd1Offset = readInt(data, (int) next, littleEndian);
+        final long ifd1 = tiff + ifd1Offset;
+        if (ifd1Offset == 0 || ifd1 + 2 > end) {
+            return null;
+        }
+        long offset = -1;
+        long length = -1;
+        final int entries = readShort(data, (int) ifd1, littleEndian);
+        for (int entry = 0; entry < entries; entry++) {
+            final long e = ifd1 + 2 + entry * IFD_ENTRY_LENGTH;
+            if (e + IFD_ENTRY_LENGTH > end) {
+                return null;
+            }
+            final int tag = readShort(data, (int) e, littleEndian);
+            if (tag == JPEG_INTERCHANGE_FORMAT) {
+                offset = readInt(data, (int) e + 8, littleEndian);
+            } else if (tag == JPEG_INTERCHANGE_FORMAT_LENGTH) {
+                length = readInt(data, (int) e + 8, littleEndian);
+            }
+        }
+        if (offset <= 0 || length <= 0 || tiff + offset + length > end) {
+            return null;
+        }
+        final byte[] thumbnail = Arrays.copyOfRange(data, (int) (tiff + offset), (int) (tiff + offset + length));
+        return isJPEG(thumbnail) ? thumbnail : null;
+    }
+
+    /**
+     * Checks if data starts with the start of image marker of a JPEG file.
+     *
+     * @param data
+     *            Data to check
+     * @return True if the data starts like a JPEG file
+     */
+    private static boolean isJPEG(final byte[] data) {
+        return data != null && data.length >= 2 && (data[0] & 0xFF) == MARKER && (data[1] & 0xFF) == SOI;
+    }
+
+    /**
+     * Checks if a start of frame marker starts a progressive frame.
+     *
+     * @param marker
+     *            Start of frame marker
+     * @return True for progressive Huffman and arithmetic coding
+     */
+    private static boolean isProgressive(final int marker) {
+        return marker == 0xC2 || marker == 0xC6 || marker == 0xCA || marker == 0xCE;
+    }
+
+    /**
+     * Checks if a marker is a start of frame marker.
+     *
+     * @param marker
+     *            Marker
+     * @return True for SOF0 to SOF15, except DHT, JPG, and DAC
+     */
+    private static boolean isStartOfFrame(final int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    /**
+     * Reads an unsigned 32-bit integer.
+     *
+     * @param data
+     *            Data to read from
+     * @param offset
+     *            Offset of the integer
+     * @param littleEndian
+     *            True for little-endian, false for big-endian byte order
+     * @return Unsigned integer
+     */
+    private static long readInt(final byte[] data, final int offset, final boolean littleEndian) {
+        final long high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        final long low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return high << 16 | low;
+    }
+
+    /**
+     * Reads an unsigned 16-bit integer.
+     *
+     * @param data
+     *            Data to read from
+     * @param offset
+     *            Offset of the integer
+     * @param littleEndian
+     *            True for little-endian, false for big-endian byte order
+     * @return Unsigned integer
+     */
+    private static int readShort(final byte[] data, final int offset, final boolean littleEndian) {
+        final int first = data[offset] & 0xFF;
+        final int second = data[offset + 1] & 0xFF;
+        return littleEndian ? second << 8 | first : first << 8 | second;
+    }
+
+    /**
+     * Finds the end of the entropy-coded data of a scan, which is the next marker other than a restart marker.
+     *
+     * @param data
+     *            Leading bytes of a JPEG file
+     * @param offset
+     *            Offset of the entropy-coded data
+     * @return Offset of the marker after the scan, or -1 if the scan is truncated
+     */
+    private static int skipEntropyCodedData(final byte[] data, final int offset) {
+        for (int i = offset; i + 1 < data.length; i++) {
+            if ((data[i] & 0xFF) == MARKER) {
+                final int next = data[i + 1] & 0xFF;
+                if (next != 0 && next != MARKER && (next < RST0 || next > RST7)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if data contains a prefix at an offset.
+     *
+     * @param data
+     *            Data to check
+     * @param offset
+     *            Offset of the prefix in the data
+     * @param prefix
+     *            Prefix to look for
+     * @return True if the data contains the prefix at the offset
+     */
+    private static boolean startsWith(final byte[] data, final int offset, final byte[] prefix) {
+        if (offset + prefix.length > data.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Private constructor for a static class.
+     */
+    private JPEGUtils() {
+    }
+}
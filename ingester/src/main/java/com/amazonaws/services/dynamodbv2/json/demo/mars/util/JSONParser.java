@@ -1,8 +1,12 @@
 package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -46,12 +50,84 @@ public final class JSONParser {
      */
     public static JsonNode getJSONFromURL(final URL url, final String expectedETag, final int connectTimeout)
         throws IOException {
-        final byte[] data = NetworkUtils.getDataFromURL(url, expectedETag, connectTimeout);
-        if (data != null) {
-            return MAPPER.readTree(data);
-        } else {
+        final InputStream in = NetworkUtils.getStreamFromURL(url, expectedETag, connectTimeout);
+        if (in == null) {
             return null;
         }
+        // Parse the (decompressed) response body while it is transferred
+        try {
+            return MAPPER.readTree(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses a JSON object from an InputStream as the bytes arrive and passes each part to a handler as soon as it is
+     * complete. Elements of arrays that are values of fields of the root object are passed one by one; the values of
+     * all other fields are passed whole. The object is never held in memory as a whole, and handling overlaps reading
+     * the rest of the stream. The stream is closed on return.
+     *
+     * @param in
+     *            Stream containing a JSON object
+     * @param handler
+     *            Handler for the parts of the object
+     * @throws IOException
+     *             Invalid JSON data, error reading the stream, or error handling a part
+     */
+    public static void streamJSON(final InputStream in, final JSONStreamHandler handler) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected JSON object", parser.getCurrentLocation());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY) {
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == null) {
+                            throw new JsonParseException("Unexpected end of JSON stream", parser
+                                .getCurrentLocation());
+                        }
+                        final JsonNode element = MAPPER.readTree(parser);
+                        handler.onArrayElement(fieldName, element);
+                    }
+                } else {
+                    final JsonNode value = MAPPER.readTree(parser);
+                    handler.onField(fieldName, value);
+                }
+            }
+            if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException("Unexpected end of JSON stream", parser.getCurrentLocation());
+            }
+        }
+    }
+
+    /**
+     * Retrieves a JSON object from a URL that supports ETag headers if the current ETag is equal to the specified
+     * expected value, and parses it incrementally as described in {@link #streamJSON(InputStream, JSONStreamHandler)}
+     * while the response body is being transferred.
+     *
+     * @param url
+     *            The URL to retrieve JSON data from
+     * @param expectedETag
+     *            Expected value for the ETag field when requesting the resource. Null if the ETag is not checked.
+     * @param connectTimeout
+     *            Timeout for retrieving JSON
+     * @param handler
+     *            Handler for the parts of the object
+     * @return True if the resource was retrieved, false if the server did not return it
+     * @throws IOException
+     *             Invalid URL, JSON data, or connection error
+     */
+    public static boolean streamJSONFromURL(final URL url, final String expectedETag, final int connectTimeout,
+        final JSONStreamHandler handler) throws IOException {
+        final InputStream in = NetworkUtils.getStreamFromURL(url, expectedETag, connectTimeout);
+        if (in == null) {
+            return false;
+        }
+        streamJSON(in, handler);
+        return true;
     }
 
     /**
@@ -0,0 +1,36 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Receives the parts of a JSON object as soon as they are parsed by
+ * {@link JSONParser#streamJSON(java.io.InputStream, JSONStreamHandler)}.
+ */
+public interface JSONStreamHandler {
+    /**
+     * Called for each element of an array that is the value of a field of the root object, as soon as the element is
+     * complete.
+     *
+     * @param fieldName
+     *            Name of the field whose value contains the element
+     * @param element
+     *            The array element
+     * @throws IOException
+     *             Error handling the element
+     */
+    void onArrayElement(String fieldName, JsonNode element) throws IOException;
+
+    /**
+     * Called for each field of the root object whose value is not an array, as soon as the value is complete.
+     *
+     * @param fieldName
+     *            Name of the field
+     * @param value
+     *            Value of the field
+     * @throws IOException
+     *             Error handling the field
+     */
+    void onField(String fieldName, JsonNode value) throws IOException;
+}
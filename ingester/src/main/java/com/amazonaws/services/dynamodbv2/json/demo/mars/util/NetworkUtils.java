@@ -1,17 +1,158 @@
     package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Utilities for retrieving data from http URLs.
  */
 public final class NetworkUtils {
+    /**
+     * Stream of a response body that releases its request when it is closed.
+     */
+    private static final class ConnectionStream extends FilterInputStream {
+        /**
+         * Request of the response.
+         */
+        private final Request request;
+        /**
+         * True once the stream is closed.
+         */
+        private boolean closed = false;
+
+        /**
+         * Constructs a {@link ConnectionStream}.
+         *
+         * @param in
+         *            Stream of the response body
+         * @param request
+         *            Request of the response
+         */
+        ConnectionStream(final InputStream in, final Request request) {
+            super(in);
+            this.request = request;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean released = false;
+            try {
+                super.close();
+                released = true;
+                request.release(true, true);
+            } finally {
+                if (!released) {
+                    request.release(false, false);
+                }
+            }
+        }
+
+        /**
+         * Gets the length of the response body from the Content-Length header.
+         *
+         * @return Length in bytes, or -1 if unknown or if the body is compressed
+         */
+        long getContentLength() {
+            // The Content-Length of a compressed body is not the length of the decompressed data
+            return request.conn.getContentEncoding() == null ? request.conn.getContentLengthLong() : -1;
+        }
+    }
+
+    /**
+     * HTTP request that received a response. Holds a connection from the connection pool and a request slot from the
+     * fetch governor until it is released.
+     */
+    private static final class Request {
+        /**
+         * Pool the connection was opened from.
+         */
+        private final HttpConnectionPool pool;
+        /**
+         * Governor the request slot was acquired from.
+         */
+        private final FetchGovernor governor;
+        /**
+         * The URL of the request.
+         */
+        private final URL url;
+        /**
+         * The connection.
+         */
+        private final HttpURLConnection conn;
+        /**
+         * HTTP response code.
+         */
+        private final int responseCode;
+        /**
+         * True if the request is the trial request of a half open circuit breaker.
+         */
+        private final boolean trial;
+
+        /**
+         * Constructs a {@link Request}.
+         *
+         * @param pool
+         *            Pool the connection was opened from
+         * @param governor
+         *            Governor the request slot was acquired from
+         * @param url
+         *            The URL of the request
+         * @param conn
+         *            The connection
+         * @param responseCode
+         *            HTTP response code
+         * @param trial
+         *            True if the request is the trial request of a half open circuit breaker
+         */
+        Request(final HttpConnectionPool pool, final FetchGovernor governor, final URL url,
+            final HttpURLConnection conn, final int responseCode, final boolean trial) {
+            this.pool = pool;
+            this.governor = governor;
+            this.url = url;
+            this.conn = conn;
+            this.responseCode = responseCode;
+            this.trial = trial;
+        }
+
+        /**
+         * Releases the connection and the request slot, and records the outcome of the request.
+         *
+         * @param reuse
+         *            True if the response was consumed and the connection can be reused, false if the connection is
+         *            closed
+         * @param received
+         *            True to record the response code with the governor, false to record a failure because reading
+         *            the response failed
+         */
+        void release(final boolean reuse, final boolean received) {
+            try {
+                pool.releaseConnection(url, conn, reuse);
+            } finally {
+                governor.release(url, received ? responseCode : FetchGovernor.FAILED, trial);
+            }
+        }
+    }
+
     /**
      * Logger for {@link NetworkUtils}.
      */
@@ -20,10 +161,142 @@ public final class NetworkUtils {
      * Header field key for ETag.
      */
     public static final String ETAG_HEADER = "ETag";
+    /**
+     * Request header field key for the content codings accepted in a response.
+     */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    /**
+     * Content codings accepted in a response.
+     */
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+    /**
+     * Content coding of uncompressed responses. Byte ranges are requested uncompressed, because ranges apply to the
+     * compressed data otherwise.
+     */
+    private static final String IDENTITY_ENCODING = "identity";
+    /**
+     * Request header field key for requesting a byte range.
+     */
+    private static final String RANGE_HEADER = "Range";
+    /**
+     * Header field key for the byte range of a partial response.
+     */
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
     /**
      * HTTP method HEAD.
      */
     private static final String HEAD = "HEAD";
+    /**
+     * Request header field key for conditional requests by ETag.
+     */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    /**
+     * Pool that limits and reuses the connections opened by {@link NetworkUtils}.
+     */
+    private static volatile HttpConnectionPool connectionPool = new HttpConnectionPool();
+    /**
+     * Cache of response bodies. Null if responses are not cached.
+     */
+    private static volatile HttpDiskCache responseCache;
+    /**
+     * Governor that rate limits and retries the requests made by {@link NetworkUtils}.
+     */
+    private static volatile FetchGovernor fetchGovernor = new FetchGovernor();
+    /**
+     * Header field key for the delay requested by a throttling server.
+     */
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    /**
+     * Size of the per-thread scratch buffer for reading responses of unknown length.
+     */
+    private static final int SCRATCH_BUFFER_SIZE = 64 * 1024; // 64 KB
+    /**
+     * Largest array that can be allocated.
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    /**
+     * Per-thread scratch buffers for reading responses of unknown length. A response that fits is copied once into an
+     * array of its exact size, so small responses do not leave a large buffer behind as garbage.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH_BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_BUFFER_SIZE];
+        }
+    };
+
+    /**
+     * Checks that the ETag of a resource matches the expected value.
+     *
+     * @param expectedETag
+     *            Previously recorded ETag for the resource. Null if the ETag is not checked.
+     * @param eTag
+     *            Current ETag of the resource
+     * @throws IllegalStateException
+     *             The ETag does not match the expected value
+     */
+    private static void checkETag(final String expectedETag, final String eTag) {
+        if (expectedETag != null && (eTag == null || !eTag.equals(expectedETag))) {
+            throw new IllegalStateException("Expected ETag: " + expectedETag + ". Actual ETag: " + eTag);
+        }
+    }
+
+    /**
+     * Retrieves data from a URL that supports ETag headers if the current ETag matches the expected value. The data is
+     * returned as a view of the buffer it was read into, without a final copy. The buffer is sized from the
+     * Content-Length of the response when the server sends one.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param expectedETag
+     *            Previously recorded ETag for the resource. Null if the ETag is not checked.
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @return Buffer whose remaining bytes are the retrieved data, or null if the server did not return the resource
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    public static ByteBuffer getBufferFromURL(final URL url, final String expectedETag, final int connectTimeout)
+        throws IOException {
+        final InputStream in = getStreamFromURL(url, expectedETag, connectTimeout);
+        if (in == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer data = readStream(in, getContentLength(in));
+            LOGGER.finer("Successfully retreived data from " + url.toExternalForm());
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gets the pool that limits and reuses the connections opened by {@link NetworkUtils}.
+     *
+     * @return Connection pool
+     */
+    public static HttpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Gets the length of the data of a stream opened by {@link #getStreamFromURL(URL, String, int)}.
+     *
+     * @param in
+     *            Stream of a response body or of a cached copy
+     * @return Length in bytes, or -1 if unknown
+     * @throws IOException
+     *             Error reading the length of a cached copy
+     */
+    private static long getContentLength(final InputStream in) throws IOException {
+        if (in instanceof ConnectionStream) {
+            return ((ConnectionStream) in).getContentLength();
+        } else if (in instanceof FileInputStream) {
+            return ((FileInputStream) in).getChannel().size();
+        }
+        return -1;
+    }
 
     /**
      * Retrieves data from a URL.
@@ -55,36 +328,40 @@ public final class NetworkUtils {
      */
     public static byte[] getDataFromURL(final URL url, final String expectedETag, final int connectTimeout)
         throws IOException {
-        HttpURLConnection conn = null;
-        InputStream in;
-        try {
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(connectTimeout);
-            conn.connect();
-            if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                in = conn.getInputStream();
-                if (expectedETag != null) {
-                    final String eTag = conn.getHeaderField(ETAG_HEADER);
-                    if (eTag == null || !eTag.equals(expectedETag)) {
-                        throw new IllegalStateException("Expected ETag: " + expectedETag + ". Actual ETag: " + eTag);
-                    }
-                }
-                final byte[] data = readStream(in);
-                LOGGER.finer("Successfully retreived data from " + url.toExternalForm());
-                return data;
-            } else {
-                LOGGER.log(Level.WARNING,
-                    "Could not retrieve data from " + url.toExternalForm() + ": " + conn.getResponseCode() + " - " + conn.getResponseMessage());
-                return null;
-            }
-        } catch (final ClassCastException e) {
-            throw new UnsupportedOperationException("URL is not a valid HTTP URL");
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
-        }
+        final ByteBuffer buffer = getBufferFromURL(url, expectedETag, connectTimeout);
+        return buffer == null ? null : toArray(buffer);
+    }
 
+    /**
+     * Retrieves data from a URL with a conditional GET. If an ETag is provided, the request carries an If-None-Match
+     * header; otherwise, if a last modification time is provided, it carries an If-Modified-Since header. An unchanged
+     * resource costs a single request without a response body.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param eTag
+     *            Previously recorded ETag for the resource, or null if none was recorded
+     * @param lastModified
+     *            Previously recorded last modification time in milliseconds since the epoch, or 0 if none was recorded
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @return Response with the data and validators of the resource, a not modified response if the server reported
+     *         that the resource did not change, or null if the server did not return the resource
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    public static ConditionalResponse getDataIfModified(final URL url, final String eTag, final long lastModified,
+        final int connectTimeout) throws IOException {
+        final ConditionalResponse response = getStreamIfModified(url, eTag, lastModified, connectTimeout);
+        if (response == null || !response.isModified()) {
+            return response;
+        }
+        final byte[] data;
+        try (InputStream in = response.getStream()) {
+            data = toArray(readStream(in, ((ConnectionStream) in).getContentLength()));
+        }
+        LOGGER.finer("Successfully retreived data from " + url.toExternalForm());
+        return ConditionalResponse.modified(data, response.getETag(), response.getLastModified());
     }
 
     /**
@@ -97,49 +374,552 @@ public final class NetworkUtils {
      *             connection error
      */
     public static String getETag(final URL url) throws IOException {
-
-        HttpURLConnection conn = null;
+        final Request request = send(url, 0, HEAD, null, 0, 0);
+        final HttpURLConnection conn = request.conn;
         try {
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod(HEAD);
-            if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
+            if (request.responseCode == HttpURLConnection.HTTP_OK) {
                 if (conn.getHeaderField(ETAG_HEADER) != null) {
                     return conn.getHeaderField(ETAG_HEADER);
                 } else {
-                    throw new IOException("No ETag header present in " + url + ". " + conn.getResponseCode() + ": "
+                    throw new IOException("No ETag header present in " + url + ". " + request.responseCode + ": "
                         + conn.getResponseMessage());
                 }
             } else {
-                throw new IOException("Could not retrieve ETag header from " + url + ". " + conn.getResponseCode()
+                throw new IOException("Could not retrieve ETag header from " + url + ". " + request.responseCode
                     + ": " + conn.getResponseMessage());
             }
-        } catch (final ClassCastException e) {
-            throw new UnsupportedOperationException("URL is not a valid HTTP URL");
         } finally {
-            if (conn != null) {
-                conn.disconnect();
+            request.release(true, true);
+        }
+    }
+
+    /**
+     * Gets the governor that rate limits and retries the requests made by {@link NetworkUtils}.
+     *
+     * @return Fetch governor
+     */
+    public static FetchGovernor getFetchGovernor() {
+        return fetchGovernor;
+    }
+
+    /**
+     * Retrieves the leading bytes of the data of a URL with a conditional GET carrying a Range header. The validators
+     * are sent as described in {@link #getDataIfModified(URL, String, long, int)}. Byte ranges are never served from
+     * or stored in the response cache.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param eTag
+     *            Previously recorded ETag for the resource, or null if none was recorded
+     * @param lastModified
+     *            Previously recorded last modification time in milliseconds since the epoch, or 0 if none was recorded
+     * @param length
+     *            Number of leading bytes to retrieve
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @return Response with the data and validators of the resource, which is partial if the resource is longer than
+     *         the requested bytes. A complete response if the server ignored the Range header. A not modified response
+     *         if the server reported that the resource did not change, or null if the server did not return the
+     *         resource.
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    public static ConditionalResponse getRangeIfModified(final URL url, final String eTag, final long lastModified,
+        final long length, final int connectTimeout) throws IOException {
+        if (length < 1) {
+            throw new IllegalArgumentException("Length must be positive");
+        }
+        final Request request = send(url, connectTimeout, null, eTag, lastModified, length);
+        final HttpURLConnection conn = request.conn;
+        final InputStream in;
+        switch (request.responseCode) {
+            case HttpURLConnection.HTTP_NOT_MODIFIED:
+                request.release(true, true);
+                LOGGER.finer("Not modified: " + url.toExternalForm());
+                return ConditionalResponse.notModified(eTag, lastModified);
+            case HttpURLConnection.HTTP_PARTIAL:
+            case HttpURLConnection.HTTP_OK:
+                try {
+                    in = new ConnectionStream(getResponseStream(conn), request);
+                } catch (final IOException | RuntimeException e) {
+                    request.release(false, false);
+                    throw e;
+                }
+                break;
+            default:
+                request.release(true, true);
+                LOGGER.log(Level.WARNING, "Could not retrieve data from " + url.toExternalForm() + ": "
+                    + request.responseCode + " - " + conn.getResponseMessage());
+                return null;
+        }
+        final byte[] data;
+        try {
+            data = toArray(readStream(in, ((ConnectionStream) in).getContentLength()));
+        } finally {
+            in.close();
+        }
+        final String newETag = conn.getHeaderField(ETAG_HEADER);
+        // A complete response if the server ignored the range or the resource is not longer than the range
+        final long total = request.responseCode == HttpURLConnection.HTTP_OK ? data.length : getRangeTotal(conn);
+        if (total >= 0 && total <= data.length) {
+            return ConditionalResponse.modified(data, newETag, conn.getLastModified());
+        }
+        return ConditionalResponse.partial(data, newETag, conn.getLastModified());
+    }
+
+    /**
+     * Gets the total length of a resource from the Content-Range header of a partial response.
+     *
+     * @param conn
+     *            Connection with a partial response
+     * @return Length in bytes, or -1 if unknown
+     */
+    private static long getRangeTotal(final HttpURLConnection conn) {
+        final String contentRange = conn.getHeaderField(CONTENT_RANGE_HEADER);
+        if (contentRange != null) {
+            final int slash = contentRange.lastIndexOf('/');
+            if (slash != -1) {
+                try {
+                    return Long.parseLong(contentRange.substring(slash + 1).trim());
+                } catch (final NumberFormatException e) {
+                    // Unknown total length: *
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the cache of response bodies.
+     *
+     * @return Response cache, or null if responses are not cached
+     */
+    public static HttpDiskCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Opens the stream of a response body and decompresses it according to the Content-Encoding of the response.
+     *
+     * @param conn
+     *            Connection with a successful response
+     * @return Stream of the decompressed response body
+     * @throws IOException
+     *             Connection error, corrupt compressed data, or unsupported content coding
+     */
+    private static InputStream getResponseStream(final HttpURLConnection conn) throws IOException {
+        final String encoding = conn.getContentEncoding();
+        final InputStream in = conn.getInputStream();
+        if (encoding == null || IDENTITY_ENCODING.equalsIgnoreCase(encoding.trim())) {
+            return in;
+        } else if ("gzip".equalsIgnoreCase(encoding.trim()) || "x-gzip".equalsIgnoreCase(encoding.trim())) {
+            return new GZIPInputStream(in, SCRATCH_BUFFER_SIZE);
+        } else if ("deflate".equalsIgnoreCase(encoding.trim())) {
+            // Deflate should be wrapped in the zlib format, but some servers send raw deflate data
+            final BufferedInputStream buffered = new BufferedInputStream(in, SCRATCH_BUFFER_SIZE);
+            buffered.mark(2);
+            final int cmf = buffered.read();
+            final int flg = buffered.read();
+            buffered.reset();
+            final boolean zlib = (cmf & 0x0F) == 8 && flg != -1 && (cmf << 8 | flg) % 31 == 0;
+            final Inflater inflater = new Inflater(!zlib);
+            return new InflaterInputStream(buffered, inflater, SCRATCH_BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+        in.close();
+        throw new IOException("Unsupported Content-Encoding: " + encoding);
+    }
+
+    /**
+     * Gets the delay requested by a throttling server with a Retry-After header in seconds.
+     *
+     * @param conn
+     *            Connection with a response
+     * @return Delay in milliseconds, or 0 if the header is missing or is not a number of seconds
+     */
+    private static long getRetryAfter(final HttpURLConnection conn) {
+        final String retryAfter = conn.getHeaderField(RETRY_AFTER_HEADER);
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (final NumberFormatException e) {
+                // HTTP dates are not supported
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Opens a stream to the data of a URL that supports ETag headers if the current ETag matches the expected value.
+     * The data can be processed while it is being transferred. Closing the stream releases the connection. If a
+     * response cache is set, a cached copy is revalidated with a conditional request and read from the cache if it did
+     * not change, and a changed copy is cached while it is read. Compressed responses are decompressed while they are
+     * read.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param expectedETag
+     *            Previously recorded ETag for the resource. Null if the ETag is not checked.
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @return Stream of the response body, or null if the server did not return the resource
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    public static InputStream getStreamFromURL(final URL url, final String expectedETag, final int connectTimeout)
+        throws IOException {
+        final HttpDiskCache cache = responseCache;
+        return openStream(url, expectedETag, connectTimeout, cache, cache == null ? null : cache.get(url));
+    }
+
+    /**
+     * Opens a stream to the data of a URL with a conditional GET, as described in
+     * {@link #getDataIfModified(URL, String, long, int)}. The data can be processed while it is being transferred.
+     * Closing the stream of a modified response releases the connection.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param eTag
+     *            Previously recorded ETag for the resource, or null if none was recorded
+     * @param lastModified
+     *            Previously recorded last modification time in milliseconds since the epoch, or 0 if none was recorded
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @return Response with an open stream of the data and the validators of the resource, a not modified response if
+     *         the server reported that the resource did not change, or null if the server did not return the resource
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    public static ConditionalResponse getStreamIfModified(final URL url, final String eTag, final long lastModified,
+        final int connectTimeout) throws IOException {
+        final Request request = send(url, connectTimeout, null, eTag, lastModified, 0);
+        final HttpURLConnection conn = request.conn;
+        boolean opened = false;
+        boolean reuse = true;
+        try {
+            switch (request.responseCode) {
+                case HttpURLConnection.HTTP_NOT_MODIFIED:
+                    LOGGER.finer("Not modified: " + url.toExternalForm());
+                    return ConditionalResponse.notModified(eTag, lastModified);
+                case HttpURLConnection.HTTP_OK:
+                    reuse = false;
+                    final InputStream in = new ConnectionStream(getResponseStream(conn), request);
+                    opened = true;
+                    return ConditionalResponse.modified(in, conn.getHeaderField(ETAG_HEADER), conn.getLastModified());
+                default:
+                    LOGGER.log(Level.WARNING, "Could not retrieve data from " + url.toExternalForm() + ": "
+                        + request.responseCode + " - " + conn.getResponseMessage());
+                    return null;
+            }
+        } finally {
+            if (!opened) {
+                request.release(reuse, reuse);
+            }
+        }
+    }
+
+    /**
+     * Gets the next size of a growing buffer.
+     *
+     * @param length
+     *            Current length of the buffer
+     * @return Doubled length, capped at the largest array size
+     * @throws IOException
+     *             The buffer cannot grow any further
+     */
+    private static int grow(final int length) throws IOException {
+        if (length >= MAX_ARRAY_SIZE) {
+            throw new IOException("Response is too large to buffer");
+        }
+        return (int) Math.min(MAX_ARRAY_SIZE, Math.max(1L, 2L * length));
+    }
+
+    /**
+     * Opens a stream to the data of a URL, revalidating a cached copy if there is one.
+     *
+     * @param url
+     *            The URL to retrieve data from
+     * @param expectedETag
+     *            Previously recorded ETag for the resource. Null if the ETag is not checked.
+     * @param connectTimeout
+     *            Connection timeout for retrieving data
+     * @param cache
+     *            Response cache, or null if responses are not cached
+     * @param cached
+     *            Cached copy of the resource, or null if the resource is not cached
+     * @return Stream of the data, or null if the server did not return the resource
+     * @throws IOException
+     *             Invalid URL or connection error
+     */
+    private static InputStream openStream(final URL url, final String expectedETag, final int connectTimeout,
+        final HttpDiskCache cache, final HttpDiskCache.Entry cached) throws IOException {
+        final String cachedETag = cached == null ? null : cached.getETag();
+        final long cachedLastModified = cached == null || cachedETag != null ? 0 : cached.getLastModified();
+        final Request request = send(url, connectTimeout, null, cachedETag, cachedLastModified, 0);
+        final HttpURLConnection conn = request.conn;
+        boolean opened = false;
+        boolean reuse = true;
+        boolean received = true;
+        try {
+            if (request.responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                checkETag(expectedETag, cached.getETag());
+                final InputStream in;
+                try {
+                    in = cached.open();
+                } catch (final IOException e) {
+                    // Evicted since it was revalidated
+                    request.release(true, true);
+                    opened = true;
+                    return openStream(url, expectedETag, connectTimeout, cache, null);
+                }
+                LOGGER.finer("Not modified, using cached copy of " + url.toExternalForm());
+                return in;
+            } else if (request.responseCode == HttpURLConnection.HTTP_OK) {
+                final String eTag = conn.getHeaderField(ETAG_HEADER);
+                if (expectedETag != null) {
+                    // The body of an unexpected version is not read, but the server did respond
+                    reuse = false;
+                    checkETag(expectedETag, eTag);
+                    reuse = true;
+                }
+                // Cache the decompressed data, so cached copies are read without decompressing them
+                reuse = false;
+                received = false;
+                final InputStream in = cache == null ? getResponseStream(conn) : cache.cache(url,
+                    getResponseStream(conn), eTag, conn.getLastModified());
+                opened = true;
+                return new ConnectionStream(in, request);
+            } else {
+                LOGGER.log(Level.WARNING, "Could not retrieve data from " + url.toExternalForm() + ": "
+                    + request.responseCode + " - " + conn.getResponseMessage());
+                return null;
+            }
+        } finally {
+            if (!opened) {
+                request.release(reuse, received);
             }
         }
     }
 
     /**
-     * Helper method to read an {@link InputStream} to a data source.
+     * Waits before retrying a request.
+     *
+     * @param delay
+     *            Delay in milliseconds
+     * @throws IOException
+     *             Interrupted while waiting
+     */
+    private static void pause(final long delay) throws IOException {
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Reads from an {@link InputStream} until a buffer is full or the stream ends.
      *
      * @param in
-     *            Input stream pointing to the data source
-     * @return byte array containing data
+     *            Input stream to read
+     * @param buf
+     *            Buffer to read into
+     * @param offset
+     *            Number of bytes already in the buffer
+     * @return Number of bytes in the buffer. Less than the buffer length if the stream ended.
      * @throws IOException
      *             Connection error
      */
-    private static byte[] readStream(final InputStream in) throws IOException {
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final int bufSize = 1024 * 1024; // 1MB
-        final byte[] buf = new byte[bufSize];
+    private static int readFully(final InputStream in, final byte[] buf, final int offset) throws IOException {
+        int count = offset;
         int n;
-        while ((n = in.read(buf, 0, buf.length)) != -1) {
-            baos.write(buf, 0, n);
+        while (count < buf.length && (n = in.read(buf, count, buf.length - count)) != -1) {
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to read an {@link InputStream} to a data source. If the length of the data is known, the data is
+     * read into an array of that size. Otherwise the data is read into a per-thread scratch buffer, and only data that
+     * outgrows the scratch buffer is read into arrays that grow by doubling.
+     *
+     * @param in
+     *            Input stream pointing to the data source
+     * @param contentLength
+     *            Length of the data in bytes, or -1 if unknown
+     * @return Buffer whose remaining bytes are the data
+     * @throws IOException
+     *             Connection error
+     */
+    static ByteBuffer readStream(final InputStream in, final long contentLength) throws IOException {
+        byte[] buf;
+        int count = 0;
+        if (contentLength >= 0 && contentLength <= MAX_ARRAY_SIZE) {
+            buf = new byte[(int) contentLength];
+            count = readFully(in, buf, 0);
+            if (count < buf.length) {
+                // Body is shorter than announced
+                return ByteBuffer.wrap(buf, 0, count);
+            }
+            final int next = in.read();
+            if (next == -1) {
+                return ByteBuffer.wrap(buf);
+            }
+            // Body is longer than announced
+            buf = Arrays.copyOf(buf, grow(buf.length));
+            buf[count++] = (byte) next;
+        } else {
+            final byte[] scratch = SCRATCH_BUFFERS.get();
+            count = readFully(in, scratch, 0);
+            if (count < scratch.length) {
+                return ByteBuffer.wrap(Arrays.copyOf(scratch, count));
+            }
+            buf = Arrays.copyOf(scratch, grow(scratch.length));
+        }
+        while (true) {
+            count = readFully(in, buf, count);
+            if (count < buf.length) {
+                return ByteBuffer.wrap(buf, 0, count);
+            }
+            buf = Arrays.copyOf(buf, grow(buf.length));
+        }
+    }
+
+    /**
+     * Sends a request through the connection pool and the fetch governor, and waits for its response. Requests that
+     * fail with a connection error, a timeout, or a retryable response code are retried with jittered exponential
+     * backoff, honoring the Retry-After header of throttling servers.
+     *
+     * @param url
+     *            The URL to request
+     * @param connectTimeout
+     *            Connection timeout
+     * @param method
+     *            HTTP method, or null for GET
+     * @param eTag
+     *            ETag for an If-None-Match header, or null for none
+     * @param lastModified
+     *            Time in milliseconds since the epoch for an If-Modified-Since header if no ETag is provided, or 0 for
+     *            none
+     * @param rangeLength
+     *            Number of leading bytes to request with a Range header, or 0 to request the whole resource
+     * @return Request with its response, which must be released. The response is not successful if the retries were
+     *         exhausted.
+     * @throws IOException
+     *             Invalid URL, connection error after the last retry, or the circuit breaker of the host is open
+     */
+    private static Request send(final URL url, final int connectTimeout, final String method, final String eTag,
+        final long lastModified, final long rangeLength) throws IOException {
+        final HttpConnectionPool pool = connectionPool;
+        final FetchGovernor governor = fetchGovernor;
+        for (int retry = 0;; retry++) {
+            final boolean trial = governor.acquire(url);
+            HttpURLConnection conn = null;
+            final int responseCode;
+            try {
+                conn = pool.openConnection(url, connectTimeout);
+                if (method != null) {
+                    conn.setRequestMethod(method);
+                }
+                if (rangeLength > 0) {
+                    conn.setRequestProperty(RANGE_HEADER, "bytes=0-" + (rangeLength - 1));
+                    conn.setRequestProperty(ACCEPT_ENCODING_HEADER, IDENTITY_ENCODING);
+                } else {
+                    // Also sent with HEAD requests, so the ETags of compressed variants are consistent
+                    conn.setRequestProperty(ACCEPT_ENCODING_HEADER, ACCEPTED_ENCODINGS);
+                }
+                if (eTag != null) {
+                    conn.setRequestProperty(IF_NONE_MATCH_HEADER, eTag);
+                } else if (lastModified > 0) {
+                    conn.setIfModifiedSince(lastModified);
+                }
+                conn.connect();
+                responseCode = conn.getResponseCode();
+            } catch (final IOException | RuntimeException e) {
+                if (conn != null) {
+                    pool.releaseConnection(url, conn, false);
+                }
+                final boolean sent = conn != null && e instanceof IOException;
+                governor.release(url, sent ? FetchGovernor.FAILED : FetchGovernor.NOT_SENT, trial);
+                if (!sent || retry >= governor.getMaxRetries()) {
+                    throw e;
+                }
+                LOGGER.fine("Retrying " + url.toExternalForm() + " after " + e);
+                pause(governor.getRetryDelay(retry + 1, 0));
+                continue;
+            }
+            final Request request = new Request(pool, governor, url, conn, responseCode, trial);
+            if (!FetchGovernor.isRetryable(responseCode) || retry >= governor.getMaxRetries()) {
+                return request;
+            }
+            final long retryAfter = getRetryAfter(conn);
+            request.release(true, true);
+            LOGGER.fine("Retrying " + url.toExternalForm() + " after " + responseCode);
+            pause(governor.getRetryDelay(retry + 1, retryAfter));
+        }
+    }
+
+    /**
+     * Sets the pool that limits and reuses the connections opened by {@link NetworkUtils}.
+     *
+     * @param pool
+     *            Connection pool
+     */
+    public static void setConnectionPool(final HttpConnectionPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null");
+        }
+        connectionPool = pool;
+    }
+
+    /**
+     * Sets the governor that rate limits and retries the requests made by {@link NetworkUtils}.
+     *
+     * @param governor
+     *            Fetch governor
+     */
+    public static void setFetchGovernor(final FetchGovernor governor) {
+        if (governor == null) {
+            throw new IllegalArgumentException("Fetch governor cannot be null");
+        }
+        fetchGovernor = governor;
+    }
+
+    /**
+     * Sets the cache of response bodies used by {@link #getStreamFromURL(URL, String, int)} and the methods that read
+     * data through it.
+     *
+     * @param cache
+     *            Response cache, or null to disable caching
+     */
+    public static void setResponseCache(final HttpDiskCache cache) {
+        responseCache = cache;
+    }
+
+    /**
+     * Gets the bytes of a buffer as an array, without copying if the buffer covers its whole backing array.
+     *
+     * @param buffer
+     *            Buffer backed by an array
+     * @return Array with the remaining bytes of the buffer
+     */
+    private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] array = buffer.array();
+        if (buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == array.length) {
+            return array;
         }
-        return baos.toByteArray();
+        final int start = buffer.arrayOffset() + buffer.position();
+        return Arrays.copyOfRange(array, start, start + buffer.remaining());
     }
 
     /**
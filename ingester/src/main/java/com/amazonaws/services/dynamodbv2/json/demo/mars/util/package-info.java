@@ -1,4 +1,5 @@
 /**
- * Static utility classes for parsing configurations, and interacting with HTTP URLs and DynamoDB.
+ * Static utility classes for parsing configurations, and interacting with HTTP URLs and DynamoDB, and ingestion
+ * metrics.
  */
 package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
@@ -1,20 +1,32 @@
 package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
 
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.json.converter.AttributeProjection;
+import com.amazonaws.services.dynamodbv2.json.converter.ItemSize;
 import com.amazonaws.services.dynamodbv2.json.converter.JacksonConverter;
 import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonConverterImpl;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.ConditionalResponse;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.IngestMetrics;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.JPEGUtils;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.JSONParser;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.NetworkUtils;
@@ -23,7 +35,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Takes a JSON representation of an image and puts it into the DynamoDB image table. Skips the image and reports a
- * warning if there is an error.
+ * warning if there is an error or if the item exceeds the DynamoDB item size limit.
  */
 public class DynamoDBImageWorker implements Runnable {
     /**
@@ -33,28 +45,23 @@ public class DynamoDBImageWorker implements Runnable {
     /**
      * Transformer for converting JSON to a DynamoDB item.
      */
-    private static final JacksonConverter CONVERTER = new JacksonConverterImpl();
+    private static final JacksonConverter CONVERTER = new JacksonConverterImpl(true, true);
 
     /**
-     * Helper method to process image from URL to thumbnail as base-64-encoded String.
+     * Helper method to process image data to thumbnail as base-64-encoded String.
      *
-     * @param imageURL
-     *            URL to retrieve image from
-     * @param expectedETag
-     *            The ETag to expect when retrieving the image
-     * @param connectTimeout
-     *            Timeout for retrieving the image
+     * @param image
+     *            Stream of the original image
      * @param thumbnailWidth
      *            Width for resulting thumbnail
      * @param thumbnailHeight
      *            Height for resulting thumbnail
      * @return Base-64-encoded String representation of the image thumbnail
      * @throws IOException
-     *             Error retrieving image or corrupt image data.
+     *             Error reading image or corrupt image data.
      */
-    protected static String getBase64EncodedImageFromURL(final URL imageURL, final String expectedETag,
-        final int connectTimeout, final int thumbnailWidth, final int thumbnailHeight) throws IOException {
-        final byte[] image = NetworkUtils.getDataFromURL(imageURL, expectedETag, connectTimeout);
+    protected static String getBase64EncodedThumbnail(final InputStream image, final int thumbnailWidth,
+        final int thumbnailHeight) throws IOException {
         // Scale image down to thumbnail as byte array
         final byte[] thumbnail = makeThumbnail(image, thumbnailWidth, thumbnailHeight);
         // Base-64-encode the image
@@ -62,6 +69,28 @@ public class DynamoDBImageWorker implements Runnable {
         return encodedThumbnail;
     }
 
+    /**
+     * Helper method to process the leading bytes of an image to thumbnail as base-64-encoded String, see
+     * {@link #makeThumbnailFromPrefix(byte[], boolean, int, int)}.
+     *
+     * @param data
+     *            Leading bytes of the original image, or the whole image
+     * @param partial
+     *            True if the data is only the leading bytes of the image
+     * @param thumbnailWidth
+     *            Width for resulting thumbnail
+     * @param thumbnailHeight
+     *            Height for resulting thumbnail
+     * @return Base-64-encoded String representation of the image thumbnail, or null if the whole image is needed
+     * @throws IOException
+     *             Error reading image or corrupt image data.
+     */
+    protected static String getBase64EncodedThumbnail(final byte[] data, final boolean partial,
+        final int thumbnailWidth, final int thumbnailHeight) throws IOException {
+        final byte[] thumbnail = makeThumbnailFromPrefix(data, partial, thumbnailWidth, thumbnailHeight);
+        return thumbnail == null ? null : JSONParser.MAPPER.convertValue(thumbnail, String.class);
+    }
+
     /**
      * Uses the java.awt library to scale the image.
      *
@@ -77,10 +106,47 @@ public class DynamoDBImageWorker implements Runnable {
      */
     protected static byte[] makeThumbnail(final byte[] byteArray, final int thumbnailWidth, final int thumbnailHeight)
         throws IOException {
-        final ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
+        return makeThumbnail(new ByteArrayInputStream(byteArray), thumbnailWidth, thumbnailHeight);
+    }
+
+    /**
+     * Uses the java.awt library to scale the image. The image is decoded from the stream as it is read, so the encoded
+     * image is never held in memory as a whole. The decoder reads every n-th pixel of images that are at least n times
+     * larger than the thumbnail, so the decoded raster is not much larger than the thumbnail either.
+     *
+     * @param in
+     *            Stream of the original image
+     * @param thumbnailWidth
+     *            Width for resulting thumbnail
+     * @param thumbnailHeight
+     *            Height for resulting thumbnail
+     * @return byte array representation of the scaled thumbnail
+     * @throws IOException
+     *             error reading or writing image
+     */
+    protected static byte[] makeThumbnail(final InputStream in, final int thumbnailWidth, final int thumbnailHeight)
+        throws IOException {
+        final BufferedImage im;
+        // Forward-only reading allows the stream to discard bytes the decoder has consumed
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(in)) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                final ImageReadParam param = reader.getDefaultReadParam();
+                final int subsampling = Math.max(1,
+                    Math.min(reader.getWidth(0) / thumbnailWidth, reader.getHeight(0) / thumbnailHeight));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                im = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final BufferedImage thumb = new BufferedImage(thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB);
-        final BufferedImage im = ImageIO.read(bais);
         final Graphics g = thumb.createGraphics();
         g.drawImage(im, 0, 0, thumbnailWidth, thumbnailHeight, null);
         g.dispose();
@@ -88,6 +154,39 @@ public class DynamoDBImageWorker implements Runnable {
         return baos.toByteArray();
     }
 
+    /**
+     * Makes a thumbnail from the leading bytes of a JPEG image. Uses the thumbnail embedded in the EXIF segment if it
+     * is at least as large as the requested thumbnail, the whole image if the data is complete, or else the complete
+     * scans of a progressive JPEG, which contain the whole image at a lower resolution.
+     *
+     * @param data
+     *            Leading bytes of the original image, or the whole image
+     * @param partial
+     *            True if the data is only the leading bytes of the image
+     * @param thumbnailWidth
+     *            Width for resulting thumbnail
+     * @param thumbnailHeight
+     *            Height for resulting thumbnail
+     * @return byte array representation of the scaled thumbnail, or null if the whole image is needed
+     * @throws IOException
+     *             error reading or writing image
+     */
+    protected static byte[] makeThumbnailFromPrefix(final byte[] data, final boolean partial,
+        final int thumbnailWidth, final int thumbnailHeight) throws IOException {
+        final byte[] exifThumbnail = JPEGUtils.getExifThumbnail(data);
+        if (exifThumbnail != null) {
+            final Dimension size = JPEGUtils.getImageSize(exifThumbnail);
+            if (size != null && size.width >= thumbnailWidth && size.height >= thumbnailHeight) {
+                return makeThumbnail(exifThumbnail, thumbnailWidth, thumbnailHeight);
+            }
+        }
+        if (!partial) {
+            return makeThumbnail(data, thumbnailWidth, thumbnailHeight);
+        }
+        final byte[] scans = JPEGUtils.getProgressiveScans(data);
+        return scans == null ? null : makeThumbnail(scans, thumbnailWidth, thumbnailHeight);
+    }
+
     /**
      * {@link AmazonDynamoDB} used to persist image to DynamoDB.
      */
@@ -116,6 +215,10 @@ public class DynamoDBImageWorker implements Runnable {
      * Height to process image to for thumbnail.
      */
     private final int thumbnailHeight;
+    /**
+     * Number of leading bytes of the image to make the thumbnail from, or 0 to always retrieve the whole image.
+     */
+    private final int thumbnailRange;
     /**
      * Flag for tracking resources by ETag in a resource table.
      */
@@ -124,6 +227,14 @@ public class DynamoDBImageWorker implements Runnable {
      * Flag for storing thumbnail data in the image table.
      */
     private final boolean storeThumbnail;
+    /**
+     * Projection that selects the attributes stored in the image table.
+     */
+    private final AttributeProjection projection;
+    /**
+     * Metrics for recording written and rejected items.
+     */
+    private final IngestMetrics metrics;
 
     /**
      * Constructs A {@link DynamoDBImageWorker} to retrieve binary image and persist to DynamoDB.
@@ -142,14 +253,22 @@ public class DynamoDBImageWorker implements Runnable {
      *            Width to process image to for thumbnail
      * @param thumbnailHeight
      *            Height to process image to for thumbnail
+     * @param thumbnailRange
+     *            Number of leading bytes of the image to make the thumbnail from, or 0 to always retrieve the whole
+     *            image. The whole image is retrieved if the leading bytes do not contain a usable thumbnail.
      * @param trackResources
      *            Flag for tracking resources by ETag in a resource table
      * @param storeThumbnail
      *            Flag for storing thumbnail data in the image table
+     * @param projection
+     *            Projection that selects the attributes stored in the image table
+     * @param metrics
+     *            Metrics for recording written and rejected items
      */
     public DynamoDBImageWorker(final AmazonDynamoDB dynamoDB, final String imageTable, final String resourceTable,
         final ObjectNode image, final int connectTimeout, final int thumbnailWidth, final int thumbnailHeight,
-        final boolean trackResources, final boolean storeThumbnail) {
+        final int thumbnailRange, final boolean trackResources, final boolean storeThumbnail,
+        final AttributeProjection projection, final IngestMetrics metrics) {
         this.dynamoDB = dynamoDB;
         this.image = image;
         this.imageTable = imageTable;
@@ -157,8 +276,11 @@ public class DynamoDBImageWorker implements Runnable {
         this.connectTimeout = connectTimeout;
         this.thumbnailWidth = thumbnailWidth;
         this.thumbnailHeight = thumbnailHeight;
+        this.thumbnailRange = thumbnailRange;
         this.trackResources = trackResources;
         this.storeThumbnail = storeThumbnail;
+        this.projection = projection;
+        this.metrics = metrics;
     }
 
     /**
@@ -170,35 +292,87 @@ public class DynamoDBImageWorker implements Runnable {
         try {
             // Retrieve image as thumbnail
             final String imageURL = image.get(MarsDynamoDBManager.IMAGE_TABLE_URL_ATTRIBUTE).asText();
-            String expectedETag = null;
+            ConditionalResponse resource = null;
             if (storeThumbnail) {
-                String data = null;
-
-                while (data == null) {
-                    if (trackResources) {
-                        final String oldETag = DynamoDBWorkerUtils.getStoredETag(dynamoDB, resourceTable, imageURL);
-                        final String newETag = NetworkUtils.getETag(new URL(imageURL));
-                        if (newETag.equals(oldETag)) {
-                            LOGGER.fine("No change in image: "
-                                + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
-                            return;
-                        } else {
-                            expectedETag = newETag;
-                        }
+                final URL url = new URL(imageURL);
+                String oldETag = null;
+                long oldLastModified = 0;
+                if (trackResources) {
+                    final Map<String, AttributeValue> stored = DynamoDBWorkerUtils.getStoredResource(dynamoDB,
+                        resourceTable, imageURL);
+                    oldETag = stored.containsKey(DynamoDBWorkerUtils.ETAG_KEY) ? stored.get(
+                        DynamoDBWorkerUtils.ETAG_KEY).getS() : null;
+                    oldLastModified = stored.containsKey(DynamoDBWorkerUtils.LAST_MODIFIED_KEY) ? Long
+                        .parseLong(stored.get(DynamoDBWorkerUtils.LAST_MODIFIED_KEY).getN()) : 0;
+                }
+                String thumbnail = null;
+                if (thumbnailRange > 0) {
+                    // Try to make the thumbnail from the leading bytes of the image
+                    resource = NetworkUtils.getRangeIfModified(url, oldETag, oldLastModified, thumbnailRange,
+                        connectTimeout);
+                    if (resource == null) {
+                        LOGGER.warning("Could not retrieve image: "
+                            + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
+                        return;
+                    }
+                    if (resource.isModified()) {
+                        thumbnail = getBase64EncodedThumbnail(resource.getData(), resource.isPartial(),
+                            thumbnailWidth, thumbnailHeight);
+                    }
+                } else if (trackResources) {
+                    // Single conditional request: unchanged images are not transferred
+                    resource = NetworkUtils.getStreamIfModified(url, oldETag, oldLastModified, connectTimeout);
+                }
+                if (resource != null && !resource.isModified()) {
+                    LOGGER.fine("No change in image: " + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
+                    return;
+                }
+                if (thumbnail == null) {
+                    final InputStream data;
+                    if (resource != null && resource.getStream() != null) {
+                        data = resource.getStream();
+                    } else if (resource == null && trackResources) {
+                        // Server did not return the image for the conditional request
+                        data = null;
+                    } else {
+                        // Retrieve the whole image if the leading bytes did not contain a usable thumbnail. The image
+                        // must not have changed since the leading bytes were retrieved, because the validators of
+                        // that response are recorded for it.
+                        data = NetworkUtils.getStreamFromURL(url, resource == null ? null : resource.getETag(),
+                            connectTimeout);
+                    }
+                    if (data == null) {
+                        LOGGER.warning("Could not retrieve image: "
+                            + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
+                        return;
+                    }
+                    // Decode the image while it is transferred
+                    try {
+                        thumbnail = getBase64EncodedThumbnail(data, thumbnailWidth, thumbnailHeight);
+                    } finally {
+                        data.close();
                     }
-                    data = getBase64EncodedImageFromURL(new URL(imageURL), expectedETag, connectTimeout,
-                        thumbnailWidth, thumbnailHeight);
                 }
                 // Store thumbnail data in the JSON
-                image.put(MarsDynamoDBManager.IMAGE_TABLE_THUMBNAIL_ATTRIBUTE, data);
+                image.put(MarsDynamoDBManager.IMAGE_TABLE_THUMBNAIL_ATTRIBUTE, thumbnail);
             }
             // Build the item
-            final Map<String, AttributeValue> item = CONVERTER.jsonObjectToMap(image);
+            final ItemSize size = new ItemSize();
+            final Map<String, AttributeValue> item = CONVERTER.jsonObjectToMap(image, projection, size);
+            // Reject items that DynamoDB would reject before making the request
+            if (!size.isWithinLimit()) {
+                LOGGER.warning("Image exceeds the DynamoDB item size limit (" + size + "): "
+                    + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
+                metrics.recordRejected();
+                return;
+            }
             // Put item into DynamoDB
             dynamoDB.putItem(imageTable, item);
+            metrics.recordWritten(size);
             LOGGER.fine("Updated image: " + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText());
-            if (trackResources) {
-                DynamoDBWorkerUtils.updateETag(dynamoDB, resourceTable, imageURL, expectedETag);
+            if (trackResources && resource != null) {
+                DynamoDBWorkerUtils.updateResource(dynamoDB, resourceTable, imageURL, resource.getETag(),
+                    resource.getLastModified());
             }
         } catch (final Exception e) {
             LOGGER.log(Level.WARNING, "Could not update image: " + image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY),
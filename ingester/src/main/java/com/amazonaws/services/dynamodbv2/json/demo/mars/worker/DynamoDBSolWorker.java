@@ -1,7 +1,9 @@
 package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,7 +18,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.JSONParser;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.JSONStreamHandler;
 import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.NetworkUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -94,6 +98,58 @@ public class DynamoDBSolWorker implements Callable<ArrayNode> {
      */
     private static final ArrayNode EMPTY_ARRAY_NODE = new ArrayNode(JsonNodeFactory.instance);
 
+    /**
+     * Adds the images of one image set of an instrument to an ArrayNode.
+     *
+     * @param images
+     *            ArrayNode to add the images to
+     * @param header
+     *            Fields of the sol other than image lists
+     * @param key
+     *            Key of the image list that contains the image set
+     * @param imageSet
+     *            JSON representation of the image set
+     */
+    private static void addImageSet(final ArrayNode images, final JsonNode header, final String key,
+        final JsonNode imageSet) {
+        validateSol(header);
+        final ArrayNode imageList = new ArrayNode(JsonNodeFactory.instance);
+        imageList.add(imageSet);
+        addInstrumentImages(images, header.get(MISSION_KEY).asText(), header.get(SOL_KEY).asInt(), key, imageList);
+    }
+
+    /**
+     * Adds the images of an instrument image list to an ArrayNode if the key of the list names an instrument that is
+     * processed.
+     *
+     * @param images
+     *            ArrayNode to add the images to
+     * @param mission
+     *            Mission name
+     * @param solNum
+     *            Sol number
+     * @param key
+     *            Key of the image list in the sol JSON
+     * @param imageList
+     *            JSON representation of the image list
+     */
+    private static void addInstrumentImages(final ArrayNode images, final String mission, final Integer solNum,
+        final String key, final JsonNode imageList) {
+        final Matcher matcher = INSTRUMENT_PATTERN.matcher(key);
+        if (matcher.matches()) {
+            if (matcher.groupCount() == 1) {
+                final String instrument = matcher.group(matcher.groupCount());
+                // Blacklisted instruments do not provide the fields required
+                if (!DO_NOT_PROCESS_INSTRUMENTS.contains(instrument)) {
+                    // Process instrument to get images
+                    images.addAll(parseInstrumentImages("Sol " + solNum + "->" + key, mission, instrument, imageList));
+                }
+            } else {
+                LOGGER.warning("Unexpected instrument name: Sol" + solNum + "->" + key);
+            }
+        }
+    }
+
     /**
      * Gets ArrayNode containing JSON representations of images if the manifest ETag does not match the provided old
      * ETag for the provided URL.
@@ -107,18 +163,7 @@ public class DynamoDBSolWorker implements Callable<ArrayNode> {
     public static ArrayNode getImages(final JsonNode sol) throws IOException {
         final ArrayNode images = new ArrayNode(JsonNodeFactory.instance);
         if (sol != null) {
-            // Check version
-            if (!sol.has(VERSION_KEY) || !SUPPORTED_VERSIONS.contains(sol.get(VERSION_KEY).asText())) {
-                throw new IllegalArgumentException("Unsupported sol type: " + sol.get(VERSION_KEY));
-            }
-            // Check for mission name
-            if (!sol.has(MISSION_KEY)) {
-                throw new IllegalArgumentException("Mission name missing");
-            }
-            // Check for sol number
-            if (!sol.has(SOL_KEY)) {
-                throw new IllegalArgumentException("Sol number missing");
-            }
+            validateSol(sol);
             final String mission = sol.get(MISSION_KEY).asText();
             final Integer solNum = sol.get(SOL_KEY).asInt();
             final Iterator<Map.Entry<String, JsonNode>> solIt = sol.fields();
@@ -127,26 +172,80 @@ public class DynamoDBSolWorker implements Callable<ArrayNode> {
             // pattern matching to find instrument keys
             while (solIt.hasNext()) {
                 final Map.Entry<String, JsonNode> entry = solIt.next();
-                final String key = entry.getKey();
-                final Matcher matcher = INSTRUMENT_PATTERN.matcher(key);
-                if (matcher.matches()) {
-                    if (matcher.groupCount() == 1) {
-                        final String instrument = matcher.group(matcher.groupCount());
-                        // Blacklisted instruments do not provide the fields required
-                        if (!DO_NOT_PROCESS_INSTRUMENTS.contains(instrument)) {
-                            // Process instrument to get images
-                            images.addAll(parseInstrumentImages("Sol " + solNum + "->" + key, mission, instrument,
-                                entry.getValue()));
-                        }
-                    } else {
-                        LOGGER.warning("Unexpected instrument name: Sol" + solNum + "->" + key);
-                    }
+                addInstrumentImages(images, mission, solNum, entry.getKey(), entry.getValue());
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Gets ArrayNode containing JSON representations of the images of a sol read from a stream. The sol is parsed
+     * incrementally as the bytes arrive: each image set of an instrument is processed as soon as it is complete, and
+     * the sol is never held in memory as a whole. Image sets that arrive before the version, mission, and sol number
+     * of the sol are processed once those are known. The images are collected and returned together once the stream
+     * ends, so parsing needs less memory but the images are not available any earlier. The stream is closed on return.
+     *
+     * @param in
+     *            Stream containing the JSON representation of a sol
+     * @return ArrayNode containing JSON representation of images
+     * @throws IOException
+     *             Invalid JSON or error reading the stream
+     */
+    public static ArrayNode getImages(final InputStream in) throws IOException {
+        final ArrayNode images = new ArrayNode(JsonNodeFactory.instance);
+        // Fields of the sol other than image lists
+        final ObjectNode header = JsonNodeFactory.instance.objectNode();
+        // Image sets that arrive before the header is complete
+        final List<Map.Entry<String, JsonNode>> pending = new ArrayList<>();
+        JSONParser.streamJSON(in, new JSONStreamHandler() {
+            @Override
+            public void onArrayElement(final String fieldName, final JsonNode element) {
+                if (header.has(VERSION_KEY) && header.has(MISSION_KEY) && header.has(SOL_KEY)) {
+                    addImageSet(images, header, fieldName, element);
+                } else {
+                    pending.add(new AbstractMap.SimpleImmutableEntry<>(fieldName, element));
                 }
             }
+
+            @Override
+            public void onField(final String fieldName, final JsonNode value) {
+                header.put(fieldName, value);
+            }
+        });
+        validateSol(header);
+        for (final Map.Entry<String, JsonNode> imageSet : pending) {
+            addImageSet(images, header, imageSet.getKey(), imageSet.getValue());
+        }
+        // Image lists that are not arrays are reported like in the tree representation
+        final Iterator<Map.Entry<String, JsonNode>> fields = header.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            addInstrumentImages(images, header.get(MISSION_KEY).asText(), header.get(SOL_KEY).asInt(), field.getKey(),
+                field.getValue());
         }
         return images;
     }
 
+    /**
+     * Retrieves a sol and gets ArrayNode containing JSON representations of its images. The sol is parsed while it is
+     * being transferred, as described in {@link #getImages(InputStream)}.
+     *
+     * @param url
+     *            Location of the sol
+     * @param connectTimeout
+     *            Timeout for retrieving the sol
+     * @return ArrayNode containing JSON representation of images
+     * @throws IOException
+     *             Invalid URL, invalid JSON, or connection error
+     */
+    public static ArrayNode getImages(final URL url, final int connectTimeout) throws IOException {
+        final InputStream in = NetworkUtils.getStreamFromURL(url, null, connectTimeout);
+        if (in == null) {
+            return new ArrayNode(JsonNodeFactory.instance);
+        }
+        return getImages(in);
+    }
+
     /**
      * <p>
      * Parses the ISO-8601 date from the image JSON.
@@ -293,6 +392,29 @@ public class DynamoDBSolWorker implements Callable<ArrayNode> {
         return url.replaceAll("#", "%23");
     }
 
+    /**
+     * Validates that a sol has a supported version, a mission name, and a sol number.
+     *
+     * @param sol
+     *            JSON representation of the sol, or of its fields other than image lists
+     * @throws IllegalArgumentException
+     *             The sol is not valid
+     */
+    private static void validateSol(final JsonNode sol) {
+        // Check version
+        if (!sol.has(VERSION_KEY) || !SUPPORTED_VERSIONS.contains(sol.get(VERSION_KEY).asText())) {
+            throw new IllegalArgumentException("Unsupported sol type: " + sol.get(VERSION_KEY));
+        }
+        // Check for mission name
+        if (!sol.has(MISSION_KEY)) {
+            throw new IllegalArgumentException("Mission name missing");
+        }
+        // Check for sol number
+        if (!sol.has(SOL_KEY)) {
+            throw new IllegalArgumentException("Sol number missing");
+        }
+    }
+
     // /**
     // * AWSDynamoDB to use to read and write ETag.
     // */
@@ -332,9 +454,7 @@ public class DynamoDBSolWorker implements Callable<ArrayNode> {
     @Override
     public ArrayNode call() throws Exception {
         try {
-            JsonNode sol = null;
-            sol = JSONParser.getJSONFromURL(new URL(url), connectTimeout);
-            final ArrayNode images = getImages(sol);
+            final ArrayNode images = getImages(new URL(url), connectTimeout);
             LOGGER.finer("Processed sol " + url + " (contains " + images.size() + " new images): ");
             return images;
         } catch (final Exception e) {
@@ -9,13 +9,17 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 
 /**
- * Provides a static method for retrieving an ETag stored in DynamoDB.
+ * Provides static methods for retrieving and storing the validators of a resource in DynamoDB.
  */
 public final class DynamoDBWorkerUtils {
     /**
      * DynamoDB item key for ETAG.
      */
     public static final String ETAG_KEY = "ETag";
+    /**
+     * DynamoDB item key for the last modification time of a resource in milliseconds since the epoch.
+     */
+    public static final String LAST_MODIFIED_KEY = "LastModified";
 
     /**
      * Retrieves the stored ETag, if one exists, from DynamoDB.
@@ -46,6 +50,28 @@ public final class DynamoDBWorkerUtils {
         return oldETag;
     }
 
+    /**
+     * Retrieves the stored item of a resource, if one exists, from DynamoDB. The item contains the validators recorded
+     * for the last processed copy of the resource, keyed by {@link #ETAG_KEY} and {@link #LAST_MODIFIED_KEY}.
+     *
+     * @param dynamoDB
+     *            DynamoDB client configured with a region and credentials
+     * @param table
+     *            The resource table name
+     * @param resource
+     *            The URL String of the resource
+     * @return The stored item, or an empty map if the resource has never been processed
+     */
+    public static Map<String, AttributeValue> getStoredResource(final AmazonDynamoDB dynamoDB, final String table,
+        final String resource) {
+        // Build key to retrieve item
+        final Map<String, AttributeValue> resourceKey = new HashMap<>();
+        resourceKey.put(MarsDynamoDBManager.RESOURCE_TABLE_HASH_KEY, new AttributeValue(resource));
+        // Get item
+        final Map<String, AttributeValue> item = dynamoDB.getItem(table, resourceKey).getItem();
+        return item == null ? new HashMap<String, AttributeValue>() : item;
+    }
+
     /**
      * Updates the resource table for the specified resource with the specified ETag.
      *
@@ -67,6 +93,34 @@ public final class DynamoDBWorkerUtils {
         dynamoDB.putItem(table, newResource);
     }
 
+    /**
+     * Updates the resource table for the specified resource with the validators of its last processed copy.
+     *
+     * @param dynamoDB
+     *            DynamoDB client configured with a region and credentials
+     * @param table
+     *            The DynamoDB resource table
+     * @param resource
+     *            The resource URL
+     * @param eTag
+     *            The new ETag for the resource, or null if the resource has no ETag
+     * @param lastModified
+     *            The new last modification time of the resource in milliseconds since the epoch, or 0 if unknown
+     */
+    public static void updateResource(final AmazonDynamoDB dynamoDB, final String table, final String resource,
+        final String eTag, final long lastModified) {
+        // Build item
+        final Map<String, AttributeValue> newResource = new HashMap<>();
+        newResource.put(MarsDynamoDBManager.RESOURCE_TABLE_HASH_KEY, new AttributeValue(resource));
+        if (eTag != null) {
+            newResource.put(ETAG_KEY, new AttributeValue(eTag));
+        }
+        if (lastModified > 0) {
+            newResource.put(LAST_MODIFIED_KEY, new AttributeValue().withN(Long.toString(lastModified)));
+        }
+        dynamoDB.putItem(table, newResource);
+    }
+
     /**
      * Private constructor for static class.
      */
@@ -1,19 +1,29 @@
 package com.amazonaws.services.dynamodbv2.json.converter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonConverterImpl;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -23,6 +33,57 @@ public class TestJacksonConvertorImpl {
 	private static JacksonConverter convertor;
 	private static final String testFile = ClassLoader.getSystemResource("flickr.json").getFile();
 
+	@Test
+	public void canonicalizeNamesAndValues() throws Exception {
+		final JacksonConverter canonicalConvertor = new JacksonConverterImpl(false, true);
+		final String json = "{\"mission\":\"opportunity\",\"ok\":true,\"none\":null}";
+		final Map<String, AttributeValue> first = canonicalConvertor.jsonObjectToMap(new JsonFactory()
+			.createJsonParser(json));
+		final Map<String, AttributeValue> second = canonicalConvertor.jsonObjectToMap(new ObjectMapper().readValue(
+			json, JsonNode.class));
+
+		assertEquals(convertor.jsonObjectToMap(new JsonFactory().createJsonParser(json)), first);
+		assertEquals(first, second);
+		assertSame(first.get("mission").getS(), second.get("mission").getS());
+		// AttributeValues are mutable, so BOOL and NULL values are never shared
+		assertNotSame(first.get("ok"), second.get("ok"));
+		assertNotSame(first.get("none"), second.get("none"));
+		first.get("ok").setBOOL(false);
+		assertEquals(Boolean.TRUE, canonicalConvertor.jsonObjectToMap(new JsonFactory().createParser(json)).get("ok")
+			.getBOOL());
+	}
+
+	private static String nestedArray(final int levels) {
+		final StringBuilder json = new StringBuilder();
+		for (int i = 0; i < levels; i++) {
+			json.append('[');
+		}
+		json.append('1');
+		for (int i = 0; i < levels; i++) {
+			json.append(']');
+		}
+		return json.toString();
+	}
+
+	@Test
+	public void arrayNestedAtMaxDepth() throws Exception {
+		// The innermost element of 50 nested arrays is at the maximum depth of 50
+		final String json = nestedArray(50);
+		final List<AttributeValue> fromTree = convertor.jsonArrayToList(new ObjectMapper().readTree(json));
+		final List<AttributeValue> fromParser = convertor.jsonArrayToList(new JsonFactory().createParser(json));
+		assertEquals(fromTree, fromParser);
+	}
+
+	@Test(expected = JacksonConverterException.class)
+	public void arrayNestedBeyondMaxDepthFromParser() throws Exception {
+		convertor.jsonArrayToList(new JsonFactory().createParser(nestedArray(51)));
+	}
+
+	@Test(expected = JacksonConverterException.class)
+	public void arrayNestedBeyondMaxDepthFromTree() throws Exception {
+		convertor.jsonArrayToList(new ObjectMapper().readTree(nestedArray(51)));
+	}
+
 	@Test
 	public void giveLoopedJsonNode() throws Exception {
 		final ObjectNode node = JsonNodeFactory.instance.objectNode();
@@ -77,6 +138,78 @@ public class TestJacksonConvertorImpl {
 		assertEquals(JsonNodeFactory.instance.nullNode(), node.get("video"));
 	}
 
+	@Test
+	public void itemNumbersToJsonNumbers() throws Exception {
+		final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+		item.put("votes", new AttributeValue().withN("42"));
+		item.put("TimeStamp", new AttributeValue().withN("1412272981000"));
+		item.put("big", new AttributeValue().withN("-123456789012345678901234567890"));
+		item.put("double", new AttributeValue().withN("2.14735356869"));
+		item.put("precise", new AttributeValue().withN("0.12345678901234567890123"));
+		item.put("exponent", new AttributeValue().withN("1.5E+3"));
+
+		final JsonNode node = convertor.mapToJsonObject(item);
+		assertTrue(node.get("votes").isInt());
+		assertEquals(42, node.get("votes").intValue());
+		assertTrue(node.get("TimeStamp").isLong());
+		assertEquals(1412272981000L, node.get("TimeStamp").longValue());
+		assertTrue(node.get("big").isBigInteger());
+		assertEquals(new BigInteger("-123456789012345678901234567890"), node.get("big").bigIntegerValue());
+		assertTrue(node.get("double").isDouble());
+		assertEquals(2.14735356869, node.get("double").doubleValue(), 0);
+		assertTrue(node.get("precise").isBigDecimal());
+		assertEquals(new BigDecimal("0.12345678901234567890123"), node.get("precise").decimalValue());
+		assertEquals(1500, node.get("exponent").doubleValue(), 0);
+	}
+
+	@Test(expected = JacksonConverterException.class)
+	public void itemInvalidNumber() throws Exception {
+		final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+		item.put("n", new AttributeValue().withN("12abc"));
+		convertor.mapToJsonObject(item);
+	}
+
+	@Test
+	public void itemListToJsonArrayInParallel() throws Exception {
+		final List<Map<String, AttributeValue>> items = new LinkedList<Map<String, AttributeValue>>();
+		for (int i = 0; i < 100; i++) {
+			final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+			item.put("id", new AttributeValue().withN(Integer.toString(i)));
+			item.put("name", new AttributeValue().withS("item" + i));
+			items.add(item);
+		}
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final JacksonConverter parallelConvertor = new JacksonConverterImpl(false, pool, 8);
+			final JsonNode array = parallelConvertor.itemListToJsonArray(items);
+			assertEquals(convertor.itemListToJsonArray(items), array);
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i, array.get(i).get("id").intValue());
+			}
+			// Below the threshold the list is converted on the calling thread
+			assertEquals(convertor.itemListToJsonArray(items.subList(0, 8)),
+				parallelConvertor.itemListToJsonArray(items.subList(0, 8)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(expected = JacksonConverterException.class)
+	public void itemListToJsonArrayInParallelInvalidNumber() throws Exception {
+		final List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+		for (int i = 0; i < 100; i++) {
+			final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+			item.put("n", new AttributeValue().withN(i == 50 ? "12abc" : Integer.toString(i)));
+			items.add(item);
+		}
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new JacksonConverterImpl(false, pool, 8).itemListToJsonArray(items);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	@Test
 	public void loadEmptyArray() throws Exception {
 		final ObjectMapper mapper = new ObjectMapper();
@@ -95,6 +228,120 @@ public class TestJacksonConvertorImpl {
 		assertEquals(0, item.size());
 	}
 
+	@Test
+	public void parserArrayToList() throws Exception {
+		final JsonParser jp = new JsonFactory().createParser("[\"a\", 1, [true], {\"b\": null}]");
+
+		final List<AttributeValue> list = convertor.jsonArrayToList(jp);
+		assertEquals(4, list.size());
+		assertEquals(new AttributeValue().withS("a"), list.get(0));
+		assertEquals(new AttributeValue().withN("1"), list.get(1));
+		assertEquals(new AttributeValue().withBOOL(true), list.get(2).getL().get(0));
+		assertEquals(new AttributeValue().withNULL(true), list.get(3).getM().get("b"));
+		assertEquals(JsonToken.END_ARRAY, jp.getCurrentToken());
+	}
+
+	@Test
+	public void parserObjectMatchesTreeConversion() throws Exception {
+		final ObjectMapper mapper = new ObjectMapper();
+		final JsonNode json = mapper.readValue(new File(testFile), JsonNode.class);
+		final JsonParser jp = new JsonFactory().createParser(new File(testFile));
+
+		final Map<String, AttributeValue> item = convertor.jsonObjectToMap(jp);
+		assertEquals(convertor.jsonObjectToMap(json), item);
+		assertEquals(JsonToken.END_OBJECT, jp.getCurrentToken());
+	}
+
+	@Test(expected = JacksonConverterException.class)
+	public void parserWrongToken() throws Exception {
+		convertor.jsonObjectToMap(new JsonFactory().createParser("[]"));
+	}
+
+	@Test
+	public void itemSize() throws Exception {
+		final String json = "{\"name\":\"abc\",\"n\":12345,\"ok\":true,\"nul\":null,\"l\":[\"a\",1],\"m\":{\"k\":\"v\"}}";
+		final JsonNode node = new ObjectMapper().readValue(json, JsonNode.class);
+
+		final ItemSize treeSize = new ItemSize();
+		convertor.jsonObjectToMap(node, treeSize);
+		assertEquals(35, treeSize.getBytes());
+		assertEquals(1, treeSize.getWriteCapacityUnits());
+		assertTrue(treeSize.isWithinLimit());
+
+		final ItemSize parserSize = new ItemSize();
+		convertor.jsonObjectToMap(new JsonFactory().createJsonParser(json), parserSize);
+		assertEquals(treeSize.getBytes(), parserSize.getBytes());
+
+		final JacksonConverter shapeConvertor = new JacksonConverterImpl(true);
+		for (int i = 0; i < 2; i++) {
+			final ItemSize shapeSize = new ItemSize();
+			shapeConvertor.jsonObjectToMap(node, shapeSize);
+			assertEquals(treeSize.getBytes(), shapeSize.getBytes());
+		}
+	}
+
+	@Test
+	public void itemSizeLimit() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for (int i = 0; i < ItemSize.MAX_ITEM_BYTES; i++) {
+			data.append('x');
+		}
+		final ObjectNode node = JsonNodeFactory.instance.objectNode();
+		node.put("data", data.toString());
+
+		final ItemSize size = new ItemSize();
+		convertor.jsonObjectToMap(node, size);
+		assertEquals(ItemSize.MAX_ITEM_BYTES + 4, size.getBytes());
+		assertEquals(401, size.getWriteCapacityUnits());
+		assertFalse(size.isWithinLimit());
+	}
+
+	@Test
+	public void projectAttributes() throws Exception {
+		final String json = "{\"id\":\"1\",\"big\":{\"a\":[1,2,3]},\"time\":{\"utc\":\"now\",\"local\":\"later\"},"
+			+ "\"list\":[{\"x\":1,\"y\":2}]}";
+		final JsonNode node = new ObjectMapper().readValue(json, JsonNode.class);
+
+		final AttributeProjection include = AttributeProjection.include("id", "time.utc", "list.x");
+		final Map<String, AttributeValue> included = convertor.jsonObjectToMap(node, include, null);
+		assertEquals(3, included.size());
+		assertEquals("1", included.get("id").getS());
+		assertEquals(1, included.get("time").getM().size());
+		assertEquals("now", included.get("time").getM().get("utc").getS());
+		assertEquals(1, included.get("list").getL().get(0).getM().size());
+		assertEquals(included, convertor.jsonObjectToMap(new JsonFactory().createJsonParser(json), include, null));
+
+		final AttributeProjection exclude = AttributeProjection.exclude("big", "time.local");
+		final ItemSize size = new ItemSize();
+		final Map<String, AttributeValue> remaining = convertor.jsonObjectToMap(node, exclude, size);
+		assertEquals(3, remaining.size());
+		assertFalse(remaining.containsKey("big"));
+		assertEquals(1, remaining.get("time").getM().size());
+		assertEquals(2, remaining.get("list").getL().get(0).getM().size());
+		final ItemSize parserSize = new ItemSize();
+		assertEquals(remaining, convertor.jsonObjectToMap(new JsonFactory().createJsonParser(json), exclude, parserSize));
+		assertEquals(size.getBytes(), parserSize.getBytes());
+		assertEquals(convertor.jsonObjectToMap(node), new JacksonConverterImpl(true).jsonObjectToMap(node,
+			AttributeProjection.ALL, null));
+	}
+
+	@Test
+	public void shapeCachingMatchesGenericConversion() throws Exception {
+		final JacksonConverter shapeConvertor = new JacksonConverterImpl(true);
+		final ObjectMapper mapper = new ObjectMapper();
+		final JsonNode json = mapper.readValue(new File(testFile), JsonNode.class);
+		final JsonNode sameShape = mapper.readValue("{\"a\":1,\"b\":{\"c\":\"x\"}}", JsonNode.class);
+		final JsonNode otherValues = mapper.readValue("{\"a\":2,\"b\":{\"c\":\"y\"}}", JsonNode.class);
+		final JsonNode otherOrder = mapper.readValue("{\"b\":{\"c\":\"z\"},\"a\":3}", JsonNode.class);
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals(convertor.jsonObjectToMap(json), shapeConvertor.jsonObjectToMap(json));
+			assertEquals(convertor.jsonObjectToMap(sameShape), shapeConvertor.jsonObjectToMap(sameShape));
+			assertEquals(convertor.jsonObjectToMap(otherValues), shapeConvertor.jsonObjectToMap(otherValues));
+			assertEquals(convertor.jsonObjectToMap(otherOrder), shapeConvertor.jsonObjectToMap(otherOrder));
+		}
+	}
+
 	@Before
 	public void setup(){
 		convertor = new JacksonConverterImpl();
@@ -1,16 +1,23 @@
 package com.amazonaws.services.dynamodbv2.json.converter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonStreamReaderImpl;
+import com.amazonaws.services.dynamodbv2.json.converter.impl.MappedFileInputStream;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
@@ -22,6 +29,8 @@ public class TestJacksonStreamReader {
         .getFile();
     private static final String flickrPhoto = ClassLoader.getSystemResource("flickr.json").getFile();
     private JsonFactory jsonFactory;
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
 
     @Test
     public void getFirstSolMetadata() throws Exception {
@@ -38,6 +47,50 @@ public class TestJacksonStreamReader {
         assertEquals("http://merpublic.s3.amazonaws.com/oss/merb/images/images_sol1.json", item.get("url").getS());
     }
 
+    @Test
+    public void getBatchesByItemCount() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifest));
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+        assertTrue(reader.seek("sols"));
+
+        final List<Map<String, AttributeValue>> batch = new ArrayList<Map<String, AttributeValue>>();
+        int total = 0;
+        int size;
+        while ((size = reader.getNextBatch(batch, 25, Long.MAX_VALUE)) > 0) {
+            assertTrue(size <= 25);
+            assertEquals(size, batch.size());
+            total += size;
+        }
+        assertEquals(3286, total);
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void getBatchesByByteLimit() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser("[{\"a\":\"0123456789\"},{\"b\":1},{\"c\":2}]");
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+
+        final List<Map<String, AttributeValue>> batch = new ArrayList<Map<String, AttributeValue>>();
+        // First item alone exceeds the limit, but is still returned on its own
+        assertEquals(1, reader.getNextBatch(batch, 25, 10));
+        assertEquals("0123456789", batch.get(0).get("a").getS());
+        assertEquals(2, reader.getNextBatch(batch, 25, 20));
+        assertEquals("1", batch.get(0).get("b").getN());
+        assertEquals("2", batch.get(1).get("c").getN());
+        assertEquals(0, reader.getNextBatch(batch, 25, 20));
+    }
+
+    @Test
+    public void getItemHeldBackFromBatch() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser("[{\"a\":0},{\"b\":\"0123456789\"}]");
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+
+        final List<Map<String, AttributeValue>> batch = new ArrayList<Map<String, AttributeValue>>();
+        assertEquals(1, reader.getNextBatch(batch, 25, 10));
+        assertEquals("0123456789", reader.getNextItem().get("b").getS());
+        assertEquals(null, reader.getNextItem());
+    }
+
     @Test
     public void getLastSolMetadata() throws Exception {
         final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifest));
@@ -58,6 +111,49 @@ public class TestJacksonStreamReader {
         assertEquals(null, reader.getNextItem());
     }
 
+    @Test
+    public void getProjectedItems() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifest));
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp, AttributeProjection.include("sol",
+            "url"));
+        assertTrue(reader.seekPath("sols[*]"));
+
+        final Map<String, AttributeValue> item = reader.getNextItem();
+        assertEquals(2, item.size());
+        assertEquals("1", item.get("sol").getN());
+        assertEquals("http://merpublic.s3.amazonaws.com/oss/merb/images/images_sol1.json", item.get("url").getS());
+        assertEquals("2", reader.getNextItem().get("sol").getN());
+    }
+
+    @Test
+    public void loadMappedDirectory() throws Exception {
+        final File dir = tmp.newFolder("dump");
+        writeFile(new File(dir, "a.json"), "[{\"sol\":1},{\"sol\":2}]");
+        writeFile(new File(dir, "b.json"), "{\"sol\":3,\"url\":\"http://example.com/sol3.json\"}\n{\"sol\":4}");
+        writeFile(new File(dir, "c.json"), "");
+
+        try (final JacksonStreamReader reader = new JacksonStreamReaderImpl(dir, AttributeProjection.ALL)) {
+            for (int sol = 1; sol <= 4; sol++) {
+                assertEquals(Integer.toString(sol), reader.getNextItem().get("sol").getN());
+            }
+            assertEquals(null, reader.getNextItem());
+        }
+    }
+
+    @Test
+    public void loadMappedFileAcrossRegions() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser(new MappedFileInputStream(new File(imageManifest), 64 * 1024));
+        try (final JacksonStreamReader reader = new JacksonStreamReaderImpl(jp)) {
+            assertTrue(reader.seekPath("sols[*]"));
+            final List<Map<String, AttributeValue>> batch = new ArrayList<Map<String, AttributeValue>>();
+            int total = 0;
+            while (reader.getNextBatch(batch, 25, Long.MAX_VALUE) > 0) {
+                total += batch.size();
+            }
+            assertEquals(3286, total);
+        }
+    }
+
     @Test
     public void loadBrokenJsonFile() throws Exception {
         final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifestBroken));
@@ -124,6 +220,52 @@ public class TestJacksonStreamReader {
         assertEquals(3286, item.get("sols").getL().size());
     }
 
+    @Test
+    public void seekPathToArray() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifest));
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+        assertTrue(reader.seekPath("sols[*]"));
+
+        assertEquals("1", reader.getNextItem().get("sol").getN());
+    }
+
+    @Test
+    public void seekPathToArrayElement() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser(new File(imageManifest));
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+        assertTrue(reader.seekPath("$.sols[2]"));
+
+        final Map<String, AttributeValue> item = reader.getNextItem();
+        assertEquals("http://merpublic.s3.amazonaws.com/oss/merb/images/images_sol3.json", item.get("url").getS());
+    }
+
+    @Test
+    public void seekPathMatchesNestingLevel() throws Exception {
+        final JsonParser jp = jsonFactory.createJsonParser("{\"a\":{\"b\":{\"x\":1}},\"c\":[{\"b\":2}],\"b\":{\"x\":3}}");
+        final JacksonStreamReaderImpl reader = new JacksonStreamReaderImpl(jp);
+        assertTrue(reader.seekPath("$.b"));
+
+        assertEquals("3", reader.getNextItem().get("x").getN());
+    }
+
+    @Test
+    public void seekPathNotFound() throws Exception {
+        assertFalse(new JacksonStreamReaderImpl(jsonFactory.createJsonParser("{\"a\":{\"b\":1}}")).seekPath("b"));
+        assertFalse(new JacksonStreamReaderImpl(jsonFactory.createJsonParser("{\"a\":[1]}")).seekPath("a[1]"));
+        assertFalse(new JacksonStreamReaderImpl(jsonFactory.createJsonParser("{\"a\":1}")).seekPath("a[*]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void seekPathInvalid() throws Exception {
+        new JacksonStreamReaderImpl(jsonFactory.createJsonParser("{}")).seekPath("a[x]");
+    }
+
+    private static void writeFile(final File file, final String content) throws Exception {
+        try (final OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes("UTF-8"));
+        }
+    }
+
     @Before
     public void setup() {
         jsonFactory = new JsonFactory();
@@ -0,0 +1,94 @@
+package com.amazonaws.services.dynamodbv2.json.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonConverterImpl;
+import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonStreamWriterImpl;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TestJacksonStreamWriter {
+    private static final String flickrPhoto = ClassLoader.getSystemResource("flickr.json").getFile();
+    private JacksonConverter converter;
+    private ObjectMapper mapper;
+    private ByteArrayOutputStream out;
+
+    @Test
+    public void writeFlickrItem() throws Exception {
+        final JsonNode json = mapper.readTree(new File(flickrPhoto));
+        final Map<String, AttributeValue> item = converter.jsonObjectToMap(json);
+
+        final JacksonStreamWriter writer = new JacksonStreamWriterImpl(out);
+        writer.writeItem(item);
+        writer.close();
+
+        assertEquals(json, mapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void writeItemList() throws Exception {
+        final List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        for (int i = 0; i < 3; i++) {
+            final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", new AttributeValue().withN(Integer.toString(i)));
+            items.add(item);
+        }
+
+        final JacksonStreamWriter writer = new JacksonStreamWriterImpl(out);
+        writer.writeItemList(items);
+        writer.close();
+
+        assertEquals(mapper.readTree("[{\"id\":0},{\"id\":1},{\"id\":2}]"), mapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void writeItemPages() throws Exception {
+        final Map<String, AttributeValue> a = new HashMap<String, AttributeValue>();
+        a.put("s", new AttributeValue().withS("a"));
+        final Map<String, AttributeValue> b = new HashMap<String, AttributeValue>();
+        b.put("n", new AttributeValue().withNULL(true));
+        final List<List<Map<String, AttributeValue>>> pages = new ArrayList<List<Map<String, AttributeValue>>>();
+        pages.add(Arrays.asList(a));
+        pages.add(new ArrayList<Map<String, AttributeValue>>());
+        pages.add(Arrays.asList(b));
+
+        final JacksonStreamWriter writer = new JacksonStreamWriterImpl(out);
+        writer.writeItemPages(pages.iterator());
+        writer.close();
+
+        assertEquals(mapper.readTree("[{\"s\":\"a\"},{\"n\":null}]"), mapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void writeLoopedMap() throws Exception {
+        final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("child", new AttributeValue().withM(item));
+
+        final JacksonStreamWriter writer = new JacksonStreamWriterImpl(out);
+        try {
+            writer.writeItem(item);
+        } catch (final JacksonStreamWriterException e) {
+            // expected behavior
+            assert (e.getMessage().startsWith("Max depth reached."));
+        }
+    }
+
+    @Before
+    public void setup() {
+        converter = new JacksonConverterImpl();
+        mapper = new ObjectMapper();
+        out = new ByteArrayOutputStream();
+    }
+}
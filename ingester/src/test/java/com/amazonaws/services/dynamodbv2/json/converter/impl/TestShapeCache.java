@@ -0,0 +1,69 @@
+package com.amazonaws.services.dynamodbv2.json.converter.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TestShapeCache {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode json(final String json) throws Exception {
+        return MAPPER.readTree(json);
+    }
+
+    @Test
+    public void hitReturnsLearnedShape() throws Exception {
+        final ShapeCache cache = new ShapeCache(ShapeCache.DEFAULT_MAX_SHAPES);
+        final ObjectShape shape = cache.getShape(json("{\"a\":1,\"b\":2}"));
+        assertArrayEquals(new String[] {"a", "b" }, shape.getFieldNames());
+        assertEquals(1, cache.size());
+        for (int i = 0; i < 100; i++) {
+            assertSame(shape, cache.getShape(json("{\"a\":" + i + ",\"b\":\"x\"}")));
+        }
+        // Hits do not learn the shape again
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void hitAfterOtherShape() throws Exception {
+        final ShapeCache cache = new ShapeCache(ShapeCache.DEFAULT_MAX_SHAPES);
+        final ObjectShape ab = cache.getShape(json("{\"a\":1,\"b\":2}"));
+        final ObjectShape ba = cache.getShape(json("{\"b\":1,\"a\":2}"));
+        final ObjectShape abc = cache.getShape(json("{\"a\":1,\"b\":2,\"c\":3}"));
+        assertNotSame(ab, ba);
+        assertNotSame(ab, abc);
+        // Alternating shapes are found in the table rather than as the last match
+        for (int i = 0; i < 10; i++) {
+            assertSame(ab, cache.getShape(json("{\"a\":1,\"b\":2}")));
+            assertSame(ba, cache.getShape(json("{\"b\":1,\"a\":2}")));
+            assertSame(abc, cache.getShape(json("{\"a\":1,\"b\":2,\"c\":3}")));
+        }
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void fullCacheDoesNotLearn() throws Exception {
+        final ShapeCache cache = new ShapeCache(2);
+        final ObjectShape a = cache.getShape(json("{\"a\":1}"));
+        final ObjectShape b = cache.getShape(json("{\"b\":1}"));
+        assertNull(cache.getShape(json("{\"c\":1}")));
+        assertEquals(2, cache.size());
+        assertSame(a, cache.getShape(json("{\"a\":2}")));
+        assertSame(b, cache.getShape(json("{\"b\":2}")));
+    }
+
+    @Test
+    public void emptyObject() throws Exception {
+        final ShapeCache cache = new ShapeCache(ShapeCache.DEFAULT_MAX_SHAPES);
+        final ObjectShape empty = cache.getShape(json("{}"));
+        assertEquals(0, empty.getFieldNames().length);
+        assertSame(empty, cache.getShape(json("{}")));
+    }
+}
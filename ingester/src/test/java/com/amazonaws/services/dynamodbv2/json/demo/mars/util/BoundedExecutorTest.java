@@ -0,0 +1,122 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BoundedExecutorTest {
+
+    private BoundedExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new BoundedExecutor(1, 2);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private Runnable blockingTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private Thread submitInBackground(final CountDownLatch submitted, final AtomicReference<Exception> error) {
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(blockingTask());
+                    submitted.countDown();
+                } catch (final RejectedExecutionException e) {
+                    error.set(e);
+                }
+            }
+        });
+        producer.start();
+        return producer;
+    }
+
+    @Test
+    public void testQueueDepth() {
+        // One running, two waiting
+        for (int i = 0; i < 3; i++) {
+            executor.execute(blockingTask());
+        }
+        assertEquals(2, executor.getQueueCapacity());
+        assertEquals(2, executor.getQueueDepth());
+        assertEquals(2, executor.getMaxQueueDepth());
+        assertEquals(0, executor.getBlockedCount());
+    }
+
+    @Test
+    public void testBlocksWhenFull() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            executor.execute(blockingTask());
+        }
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final Thread producer = submitInBackground(submitted, new AtomicReference<Exception>());
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.getBlockedCount());
+        assertEquals(2, executor.getQueueDepth());
+        // Completing the tasks makes space in the queue
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        producer.join();
+    }
+
+    @Test
+    public void testInterruptedWhileBlocked() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            executor.execute(blockingTask());
+        }
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final Thread producer = submitInBackground(new CountDownLatch(1), error);
+        while (executor.getBlockedCount() == 0) {
+            Thread.sleep(10);
+        }
+        producer.interrupt();
+        producer.join(5000);
+        assertTrue(error.get() instanceof RejectedExecutionException);
+        assertEquals(2, executor.getQueueDepth());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() {
+        executor.shutdown();
+        executor.execute(blockingTask());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads() {
+        new BoundedExecutor(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQueueCapacity() {
+        new BoundedExecutor(1, -1);
+    }
+}
@@ -0,0 +1,133 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.json.converter.impl.JacksonStreamReaderImpl;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+
+public class DynamoDBManagerBatchWriteTest {
+
+    private static final String TABLE_NAME = "table";
+
+    private AmazonDynamoDB dynamoDB;
+    private Capture<Map<String, List<WriteRequest>>> requests;
+
+    private static WriteRequest newWriteRequest(final int id) {
+        return new WriteRequest(new PutRequest(Collections.singletonMap("id",
+            new AttributeValue().withN(Integer.toString(id)))));
+    }
+
+    private static BatchWriteItemResult unprocessed(final WriteRequest... writeRequests) {
+        return new BatchWriteItemResult().withUnprocessedItems(Collections.singletonMap(TABLE_NAME,
+            Arrays.asList(writeRequests)));
+    }
+
+    @Before
+    public void setUp() {
+        dynamoDB = EasyMock.createMock(AmazonDynamoDB.class);
+        requests = new Capture<>(CaptureType.ALL);
+    }
+
+    @Test
+    public void testBatchWriteItems() {
+        final List<WriteRequest> writeRequests = Arrays.asList(newWriteRequest(1), newWriteRequest(2));
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(new BatchWriteItemResult());
+        EasyMock.replay(dynamoDB);
+        DynamoDBManager.batchWriteItems(dynamoDB, TABLE_NAME, writeRequests);
+        EasyMock.verify(dynamoDB);
+        assertEquals(writeRequests, requests.getValue().get(TABLE_NAME));
+    }
+
+    @Test
+    public void testBatchWriteItemsResubmitsUnprocessedItems() {
+        final WriteRequest first = newWriteRequest(1);
+        final WriteRequest second = newWriteRequest(2);
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(unprocessed(second));
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(
+            new BatchWriteItemResult().withUnprocessedItems(Collections.<String, List<WriteRequest>> emptyMap()));
+        EasyMock.replay(dynamoDB);
+        DynamoDBManager.batchWriteItems(dynamoDB, TABLE_NAME, Arrays.asList(first, second));
+        EasyMock.verify(dynamoDB);
+        assertEquals(2, requests.getValues().size());
+        assertEquals(Arrays.asList(first, second), requests.getValues().get(0).get(TABLE_NAME));
+        // Only the unprocessed item is resubmitted
+        assertEquals(Arrays.asList(second), requests.getValues().get(1).get(TABLE_NAME));
+    }
+
+    @Test
+    public void testBatchWriteItemsRetriesExhausted() {
+        final WriteRequest request = newWriteRequest(1);
+        // The first request and 10 retries
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(unprocessed(request))
+            .times(11);
+        EasyMock.replay(dynamoDB);
+        try {
+            DynamoDBManager.batchWriteItems(dynamoDB, TABLE_NAME, Arrays.asList(request), 0);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("Could not write 1 items to table " + TABLE_NAME + " after 10 retries", e.getMessage());
+        }
+        EasyMock.verify(dynamoDB);
+    }
+
+    @Test
+    public void testLoadItemsInBatchesOf25() throws Exception {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 60; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append('}');
+        }
+        json.append(']');
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(new BatchWriteItemResult())
+            .times(3);
+        EasyMock.replay(dynamoDB);
+        final long count = DynamoDBManager.loadItems(dynamoDB, TABLE_NAME, new JacksonStreamReaderImpl(
+            new JsonFactory().createParser(json.toString())));
+        EasyMock.verify(dynamoDB);
+        assertEquals(60, count);
+        assertEquals(Arrays.asList(25, 25, 10), batchSizes());
+        assertEquals("59", requests.getValues().get(2).get(TABLE_NAME).get(9).getPutRequest().getItem().get("id")
+            .getN());
+    }
+
+    @Test
+    public void testLoadItemsInBatchesOf16MB() throws Exception {
+        final char[] value = new char[6 * 1024 * 1024];
+        Arrays.fill(value, 'x');
+        final String item = "{\"data\":\"" + new String(value) + "\"}";
+        EasyMock.expect(dynamoDB.batchWriteItem(EasyMock.capture(requests))).andReturn(new BatchWriteItemResult())
+            .times(2);
+        EasyMock.replay(dynamoDB);
+        final long count = DynamoDBManager.loadItems(dynamoDB, TABLE_NAME, new JacksonStreamReaderImpl(
+            new JsonFactory().createParser("[" + item + "," + item + "," + item + "]")));
+        EasyMock.verify(dynamoDB);
+        assertEquals(3, count);
+        // Two items of 6 MB fit into a request, a third would exceed 16 MB
+        assertEquals(Arrays.asList(2, 1), batchSizes());
+    }
+
+    private List<Integer> batchSizes() {
+        final List<Integer> sizes = new ArrayList<>();
+        for (final Map<String, List<WriteRequest>> request : requests.getValues()) {
+            sizes.add(request.get(TABLE_NAME).size());
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,137 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.Test;
+
+public class FetchGovernorTest {
+
+    private static final URL URL_A;
+    private static final URL URL_B;
+    static {
+        try {
+            URL_A = new URL("http://a.example.com/image.jpg");
+            URL_B = new URL("http://b.example.com/image.jpg");
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void retryableResponseCodes() {
+        assertTrue(FetchGovernor.isRetryable(429));
+        assertTrue(FetchGovernor.isRetryable(500));
+        assertTrue(FetchGovernor.isRetryable(503));
+        assertFalse(FetchGovernor.isRetryable(200));
+        assertFalse(FetchGovernor.isRetryable(304));
+        assertFalse(FetchGovernor.isRetryable(404));
+    }
+
+    @Test
+    public void jitteredBackoff() {
+        final FetchGovernor governor = new FetchGovernor(100, 4, 5, 100, 1000, 5, 1000);
+        for (int i = 0; i < 100; i++) {
+            final long first = governor.getRetryDelay(1, 0);
+            assertTrue(first >= 0 && first <= 100);
+            final long fourth = governor.getRetryDelay(4, 0);
+            assertTrue(fourth >= 0 && fourth <= 800);
+            assertTrue(governor.getRetryDelay(30, 0) <= 1000);
+            assertTrue(governor.getRetryDelay(1, 500) >= 500);
+            // Retry-After is honored beyond the maximum backoff
+            assertTrue(governor.getRetryDelay(1, 5000) >= 5000);
+        }
+    }
+
+    @Test
+    public void additiveIncreaseMultiplicativeDecrease() throws IOException {
+        final FetchGovernor governor = new FetchGovernor(1000, 8, 3, 0, 0, 5, 1000);
+        assertEquals(8, governor.getConcurrencyLimit(URL_A));
+        governor.acquire(URL_A);
+        governor.release(URL_A, 503, false);
+        assertEquals(4, governor.getConcurrencyLimit(URL_A));
+        governor.acquire(URL_A);
+        governor.release(URL_A, 429, false);
+        assertEquals(2, governor.getConcurrencyLimit(URL_A));
+        // Other hosts are not affected
+        assertEquals(8, governor.getConcurrencyLimit(URL_B));
+        for (int i = 0; i < 10; i++) {
+            governor.acquire(URL_A);
+            governor.release(URL_A, 200, false);
+        }
+        assertTrue(governor.getConcurrencyLimit(URL_A) > 2);
+        assertTrue(governor.getConcurrencyLimit(URL_A) <= 8);
+    }
+
+    @Test
+    public void circuitBreaker() throws Exception {
+        final FetchGovernor governor = new FetchGovernor(1000, 8, 3, 0, 0, 3, 100);
+        for (int i = 0; i < 3; i++) {
+            governor.acquire(URL_A);
+            governor.release(URL_A, FetchGovernor.FAILED, false);
+        }
+        try {
+            governor.acquire(URL_A);
+            fail("Circuit breaker is open");
+        } catch (final IOException e) {
+            ; // Correct behavior
+        }
+        governor.acquire(URL_B);
+        governor.release(URL_B, 200, false);
+        Thread.sleep(150);
+        // Trial request after the open time
+        assertTrue(governor.acquire(URL_A));
+        try {
+            governor.acquire(URL_A);
+            fail("Only one trial request is allowed");
+        } catch (final IOException e) {
+            ; // Correct behavior
+        }
+        governor.release(URL_A, 200, true);
+        assertFalse(governor.acquire(URL_A));
+        governor.release(URL_A, 200, false);
+    }
+
+    @Test
+    public void circuitBreakerAbandonedRequests() throws Exception {
+        final FetchGovernor governor = new FetchGovernor(1000, 8, 3, 0, 0, 3, 100);
+        // A request acquired before the circuit breaker opened
+        assertFalse(governor.acquire(URL_A));
+        for (int i = 0; i < 3; i++) {
+            governor.acquire(URL_A);
+            governor.release(URL_A, FetchGovernor.FAILED, false);
+        }
+        Thread.sleep(150);
+        assertTrue(governor.acquire(URL_A));
+        // Abandoning the earlier request does not end the half open window of the trial
+        governor.release(URL_A, FetchGovernor.NOT_SENT, false);
+        try {
+            governor.acquire(URL_A);
+            fail("Only one trial request is allowed");
+        } catch (final IOException e) {
+            ; // Correct behavior
+        }
+        // Abandoning the trial lets the next request through as a new trial
+        governor.release(URL_A, FetchGovernor.NOT_SENT, true);
+        assertTrue(governor.acquire(URL_A));
+        governor.release(URL_A, 200, true);
+    }
+
+    @Test
+    public void rateLimit() throws IOException {
+        final FetchGovernor governor = new FetchGovernor(20, 8, 3, 0, 0, 5, 1000);
+        final long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            governor.acquire(URL_A);
+            governor.release(URL_A, 200, false);
+        }
+        final long elapsed = (System.nanoTime() - start) / 1000000;
+        // 20 requests of burst, then 10 requests at 20 per second
+        assertTrue("Elapsed " + elapsed, elapsed >= 400);
+    }
+}
@@ -0,0 +1,143 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpConnectionPoolTest {
+
+    private static final byte[] BODY = "{\"key\":\"value\"}".getBytes();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpConnectionPool previousPool;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        previousPool = NetworkUtils.getConnectionPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/data", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                final int current = active.incrementAndGet();
+                int max;
+                while (current > (max = maxActive.get()) && !maxActive.compareAndSet(max, current)) {
+                    ; // Retry
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                active.decrementAndGet();
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setConnectionPool(previousPool);
+        server.stop(0);
+        serverExecutor.shutdown();
+    }
+
+    private URL getURL(final String path) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void limitConnectionsPerHost() throws Exception {
+        NetworkUtils.setConnectionPool(new HttpConnectionPool(8, 2));
+        final URL url = getURL("/data");
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws IOException {
+                        return NetworkUtils.getDataFromURL(url, 1000);
+                    }
+                }));
+            }
+            for (final Future<byte[]> future : futures) {
+                assertArrayEquals(BODY, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2, maxActive.get());
+        assertEquals(8, NetworkUtils.getConnectionPool().getAvailableConnections());
+    }
+
+    @Test
+    public void releaseConnectionOnErrorResponse() throws IOException {
+        NetworkUtils.setConnectionPool(new HttpConnectionPool(1, 1));
+        assertNull(NetworkUtils.getDataFromURL(getURL("/missing"), 1000));
+        assertNull(NetworkUtils.getDataFromURL(getURL("/missing"), 1000));
+        assertEquals(1, NetworkUtils.getConnectionPool().getAvailableConnections());
+    }
+
+    @Test
+    public void setMaxIdleConnectionsPerHost() {
+        final String previous = System.getProperty("http.maxConnections");
+        try {
+            System.clearProperty("http.maxConnections");
+            HttpConnectionPool.setMaxIdleConnectionsPerHost(16);
+            assertEquals("16", System.getProperty("http.maxConnections"));
+            // A value set on the command line is kept
+            HttpConnectionPool.setMaxIdleConnectionsPerHost(4);
+            assertEquals("16", System.getProperty("http.maxConnections"));
+        } finally {
+            if (previous == null) {
+                System.clearProperty("http.maxConnections");
+            } else {
+                System.setProperty("http.maxConnections", previous);
+            }
+        }
+    }
+
+    @Test
+    public void reuseConnections() throws IOException {
+        NetworkUtils.setConnectionPool(new HttpConnectionPool(1, 1));
+        final URL url = getURL("/data");
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(BODY, NetworkUtils.getDataFromURL(url, 1000));
+        }
+        assertEquals(1, clientPorts.size());
+    }
+}
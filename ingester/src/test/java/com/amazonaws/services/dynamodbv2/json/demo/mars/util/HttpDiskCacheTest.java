@@ -0,0 +1,157 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpDiskCacheTest {
+
+    private static final byte[] BODY = "{\"sol\":1}".getBytes();
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger bodiesSent = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sol", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                bodiesSent.incrementAndGet();
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setResponseCache(null);
+        server.stop(0);
+    }
+
+    private static void cache(final HttpDiskCache cache, final String url, final int length) throws IOException {
+        try (InputStream in = cache.cache(new URL(url), new ByteArrayInputStream(new byte[length]), "e", 0)) {
+            while (in.read() != -1) {
+                ; // Read to the end
+            }
+        }
+    }
+
+    @Test
+    public void revalidateCachedResponse() throws IOException {
+        final File directory = tmp.newFolder();
+        NetworkUtils.setResponseCache(new HttpDiskCache(directory, 1024));
+        final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/sol");
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(url, 1000));
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(url, ETAG, 1000));
+        assertEquals(2, requests.get());
+        assertEquals(1, bodiesSent.get());
+        // Cache survives a restart
+        NetworkUtils.setResponseCache(new HttpDiskCache(directory, 1024));
+        assertEquals(BODY.length, NetworkUtils.getResponseCache().getTotalBytes());
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(url, 1000));
+        assertEquals(1, bodiesSent.get());
+    }
+
+    @Test
+    public void revalidateParsedResponse() throws IOException {
+        NetworkUtils.setResponseCache(new HttpDiskCache(tmp.newFolder(), 1024));
+        final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/sol");
+        // The parser stops at the end of the document without reading to the end of the stream
+        final JsonNode first = JSONParser.getJSONFromURL(url, 1000);
+        final JsonNode second = JSONParser.getJSONFromURL(url, 1000);
+        assertEquals(first, second);
+        assertEquals(2, requests.get());
+        assertEquals(1, bodiesSent.get());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        final File directory = tmp.newFolder();
+        final HttpDiskCache cache = new HttpDiskCache(directory, 250);
+        cache(cache, "http://localhost/1", 100);
+        cache(cache, "http://localhost/2", 100);
+        assertNotNull(cache.get(new URL("http://localhost/1")));
+        cache(cache, "http://localhost/3", 100);
+        assertEquals(200, cache.getTotalBytes());
+        assertNotNull(cache.get(new URL("http://localhost/1")));
+        assertNull(cache.get(new URL("http://localhost/2")));
+        assertNotNull(cache.get(new URL("http://localhost/3")));
+        assertEquals(4, directory.list().length);
+    }
+
+    @Test
+    public void cachePartiallyReadResponse() throws IOException {
+        final File directory = tmp.newFolder();
+        final HttpDiskCache cache = new HttpDiskCache(directory, 1024);
+        try (InputStream in = cache.cache(new URL("http://localhost/1"), new ByteArrayInputStream(BODY), "e", 0)) {
+            in.read();
+        }
+        assertNotNull(cache.get(new URL("http://localhost/1")));
+        assertEquals(BODY.length, cache.getTotalBytes());
+    }
+
+    @Test
+    public void discardIncompleteResponse() throws IOException {
+        final File directory = tmp.newFolder();
+        final HttpDiskCache cache = new HttpDiskCache(directory, 1024);
+        final InputStream truncated = new FilterInputStream(new ByteArrayInputStream(BODY)) {
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        try (InputStream in = cache.cache(new URL("http://localhost/1"), truncated, "e", 0)) {
+            in.read();
+        }
+        assertNull(cache.get(new URL("http://localhost/1")));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void skipResponseWithoutValidators() throws IOException {
+        final File directory = tmp.newFolder();
+        final HttpDiskCache cache = new HttpDiskCache(directory, 1024);
+        final InputStream in = new ByteArrayInputStream(BODY);
+        assertEquals(in, cache.cache(new URL("http://localhost/1"), in, null, 0));
+        assertEquals(0, directory.list().length);
+    }
+}
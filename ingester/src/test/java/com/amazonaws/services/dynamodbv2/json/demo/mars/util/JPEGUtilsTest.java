@@ -0,0 +1,115 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.junit.Test;
+
+public class JPEGUtilsTest {
+
+    static byte[] newJPEG(final int width, final int height, final boolean progressive) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(Color.BLUE);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(baos)) {
+            writer.setOutput(out);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            if (progressive) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] withExifThumbnail(final byte[] jpeg, final byte[] thumbnail, final ByteOrder order) {
+        // TIFF header, empty IFD0, IFD1 with the offset and length of the thumbnail
+        final ByteBuffer tiff = ByteBuffer.allocate(8 + 6 + 2 + 2 * 12 + 4 + thumbnail.length).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.putShort((short) 42).putInt(8);
+        tiff.putShort((short) 0).putInt(14);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 0x0201).putShort((short) 4).putInt(1).putInt(8 + 6 + 2 + 2 * 12 + 4);
+        tiff.putShort((short) 0x0202).putShort((short) 4).putInt(1).putInt(thumbnail.length);
+        tiff.putInt(0);
+        tiff.put(thumbnail);
+        final ByteBuffer result = ByteBuffer.allocate(jpeg.length + 4 + 6 + tiff.capacity());
+        result.put(jpeg, 0, 2);
+        result.put((byte) 0xFF).put((byte) 0xE1).putShort((short) (2 + 6 + tiff.capacity()));
+        result.put(new byte[] {'E', 'x', 'i', 'f', 0, 0 }).put(tiff.array());
+        result.put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+
+    @Test
+    public void exifThumbnail() throws IOException {
+        final byte[] thumbnail = newJPEG(160, 120, false);
+        final byte[] jpeg = newJPEG(1600, 1200, false);
+        for (final ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final byte[] withThumbnail = withExifThumbnail(jpeg, thumbnail, order);
+            assertNotNull(ImageIO.read(new ByteArrayInputStream(withThumbnail)));
+            assertArrayEquals(thumbnail, JPEGUtils.getExifThumbnail(withThumbnail));
+            // Leading bytes that contain the EXIF segment
+            assertArrayEquals(thumbnail,
+                JPEGUtils.getExifThumbnail(Arrays.copyOf(withThumbnail, thumbnail.length + 100)));
+            // Truncated thumbnail
+            assertNull(JPEGUtils.getExifThumbnail(Arrays.copyOf(withThumbnail, thumbnail.length / 2)));
+        }
+        assertNull(JPEGUtils.getExifThumbnail(jpeg));
+        assertNull(JPEGUtils.getExifThumbnail("not an image".getBytes()));
+    }
+
+    @Test
+    public void imageSize() throws IOException {
+        assertEquals(new Dimension(640, 480), JPEGUtils.getImageSize(newJPEG(640, 480, false)));
+        assertEquals(new Dimension(64, 48), JPEGUtils.getImageSize(newJPEG(64, 48, true)));
+        assertNull(JPEGUtils.getImageSize(new byte[] {(byte) 0xFF, (byte) 0xD8 }));
+    }
+
+    @Test
+    public void progressiveScans() throws IOException {
+        final byte[] progressive = newJPEG(1600, 1200, true);
+        final byte[] scans = JPEGUtils.getProgressiveScans(Arrays.copyOf(progressive, progressive.length / 2));
+        assertNotNull(scans);
+        assertEquals((byte) 0xD9, scans[scans.length - 1]);
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(scans));
+        assertEquals(1600, image.getWidth());
+        assertEquals(Color.RED.getRGB() & 0xf00000, image.getRGB(100, 600) & 0xf00000);
+        assertEquals(Color.BLUE.getRGB() & 0xf0, image.getRGB(1500, 600) & 0xf0);
+        // Complete file
+        assertArrayEquals(progressive, JPEGUtils.getProgressiveScans(progressive));
+        // No complete scan
+        assertNull(JPEGUtils.getProgressiveScans(Arrays.copyOf(progressive, 700)));
+        // Baseline
+        final byte[] baseline = newJPEG(1600, 1200, false);
+        assertNull(JPEGUtils.getProgressiveScans(Arrays.copyOf(baseline, baseline.length / 2)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class JSONParserStreamTest {
+
+    private static final class RecordingHandler implements JSONStreamHandler {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onArrayElement(final String fieldName, final JsonNode element) {
+            events.add(fieldName + "[]=" + element);
+        }
+
+        @Override
+        public void onField(final String fieldName, final JsonNode value) {
+            events.add(fieldName + "=" + value);
+        }
+    }
+
+    private static final class TrackingInputStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        TrackingInputStream(final String json) {
+            super(json.getBytes());
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    private static List<String> stream(final String json) throws IOException {
+        final RecordingHandler handler = new RecordingHandler();
+        JSONParser.streamJSON(new ByteArrayInputStream(json.getBytes()), handler);
+        return handler.events;
+    }
+
+    @Test
+    public void testStreamJSON() throws IOException {
+        final List<String> events = stream("{\"sol\":10,\"cameras\":[{\"id\":1},{\"id\":2}],\"meta\":{\"a\":[1,2]},"
+            + "\"empty\":[],\"ids\":[3,\"x\",null]}");
+        final List<String> expected = new ArrayList<>();
+        expected.add("sol=10");
+        expected.add("cameras[]={\"id\":1}");
+        expected.add("cameras[]={\"id\":2}");
+        // Arrays below the root object are passed whole
+        expected.add("meta={\"a\":[1,2]}");
+        expected.add("ids[]=3");
+        expected.add("ids[]=\"x\"");
+        expected.add("ids[]=null");
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void testStreamJSONEmptyObject() throws IOException {
+        assertTrue(stream("{}").isEmpty());
+    }
+
+    @Test
+    public void testStreamJSONClosesStream() throws IOException {
+        final TrackingInputStream in = new TrackingInputStream("{\"a\":[1]}");
+        JSONParser.streamJSON(in, new RecordingHandler());
+        assertTrue(in.closed);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testStreamJSONNotAnObject() throws IOException {
+        stream("[1,2]");
+    }
+
+    @Test
+    public void testStreamJSONTruncated() throws IOException {
+        final RecordingHandler handler = new RecordingHandler();
+        final TrackingInputStream in = new TrackingInputStream("{\"sol\":10,\"cameras\":[{\"id\":1},{\"id\"");
+        try {
+            JSONParser.streamJSON(in, handler);
+            fail("Expected JsonParseException");
+        } catch (final JsonParseException e) {
+            // Complete parts were passed before the error
+            assertEquals(2, handler.events.size());
+            assertTrue(in.closed);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class NetworkUtilsTest {
+
+    private static final byte[] BODY = "image".getBytes();
+    private static final String ETAG = "\"v1\"";
+    private static final long LAST_MODIFIED = 1400000000000L;
+    private static final byte[] JSON;
+    static {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"sol\":").append(i).append(",\"url\":\"sol").append(i)
+                .append(".json\"}");
+        }
+        JSON = json.append("]").toString().getBytes();
+    }
+
+    private HttpServer server;
+    private FetchGovernor previousGovernor;
+    private final AtomicInteger bodiesSent = new AtomicInteger();
+    private final AtomicInteger flakyRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/image", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                final String lastModified = format.format(new Date(LAST_MODIFIED));
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Last-Modified", lastModified);
+                final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                final String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                if (ETAG.equals(ifNoneMatch) || ifNoneMatch == null && lastModified.equals(ifModifiedSince)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                bodiesSent.incrementAndGet();
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            }
+        });
+        server.createContext("/flaky", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                if (flakyRequests.incrementAndGet() <= 2) {
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            }
+        });
+        server.createContext("/compressed", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                final String encoding = exchange.getRequestURI().getQuery();
+                if (accepted == null || !accepted.contains(encoding.startsWith("deflate") ? "deflate" : encoding)) {
+                    exchange.sendResponseHeaders(406, -1);
+                    exchange.close();
+                    return;
+                }
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, "deflate-raw".equals(encoding));
+                try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(compressed)
+                    : new DeflaterOutputStream(compressed, deflater)) {
+                    out.write(JSON);
+                } finally {
+                    deflater.end();
+                }
+                exchange.getResponseHeaders().add("Content-Encoding", encoding.startsWith("deflate") ? "deflate"
+                    : encoding);
+                exchange.sendResponseHeaders(200, compressed.size());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    compressed.writeTo(out);
+                }
+            }
+        });
+        server.createContext("/range", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String range = exchange.getRequestHeaders().getFirst("Range");
+                if (!"identity".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))
+                    || range == null || !range.startsWith("bytes=0-")) {
+                    exchange.sendResponseHeaders(400, -1);
+                    exchange.close();
+                    return;
+                }
+                final int end = (int) Math.min(JSON.length - 1, Long.parseLong(range.substring(8)));
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Content-Range", "bytes 0-" + end + "/" + JSON.length);
+                exchange.sendResponseHeaders(206, end + 1);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(JSON, 0, end + 1);
+                }
+            }
+        });
+        server.start();
+        previousGovernor = NetworkUtils.getFetchGovernor();
+    }
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setFetchGovernor(previousGovernor);
+        server.stop(0);
+    }
+
+    private URL getURL(final String path) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void getDataIfModifiedWithoutValidators() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getDataIfModified(getURL("/image"), null, 0, 1000);
+        assertTrue(response.isModified());
+        assertArrayEquals(BODY, response.getData());
+        assertEquals(ETAG, response.getETag());
+        assertEquals(LAST_MODIFIED, response.getLastModified());
+    }
+
+    @Test
+    public void getDataIfModifiedByETag() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getDataIfModified(getURL("/image"), ETAG, 0, 1000);
+        assertFalse(response.isModified());
+        assertNull(response.getData());
+        assertEquals(0, bodiesSent.get());
+    }
+
+    @Test
+    public void getDataIfModifiedByChangedETag() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getDataIfModified(getURL("/image"), "\"v0\"", LAST_MODIFIED,
+            1000);
+        assertTrue(response.isModified());
+        assertEquals(ETAG, response.getETag());
+    }
+
+    @Test
+    public void getDataIfModifiedByLastModified() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getDataIfModified(getURL("/image"), null, LAST_MODIFIED,
+            1000);
+        assertFalse(response.isModified());
+        assertEquals(0, bodiesSent.get());
+    }
+
+    @Test
+    public void getDataIfModifiedMissing() throws IOException {
+        assertNull(NetworkUtils.getDataIfModified(getURL("/missing"), ETAG, 0, 1000));
+    }
+
+    private static byte[] getBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] newData(final int length) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Test
+    public void readStreamWithContentLength() throws IOException {
+        final byte[] data = newData(1000);
+        final ByteBuffer buffer = NetworkUtils.readStream(new ByteArrayInputStream(data), data.length);
+        assertEquals(data.length, buffer.array().length);
+        assertArrayEquals(data, getBytes(buffer));
+    }
+
+    @Test
+    public void readStreamWithWrongContentLength() throws IOException {
+        final byte[] data = newData(1000);
+        assertArrayEquals(data, getBytes(NetworkUtils.readStream(new ByteArrayInputStream(data), 10)));
+        assertArrayEquals(data, getBytes(NetworkUtils.readStream(new ByteArrayInputStream(data), 5000)));
+        assertArrayEquals(new byte[0], getBytes(NetworkUtils.readStream(new ByteArrayInputStream(new byte[0]), 0)));
+    }
+
+    @Test
+    public void readStreamWithoutContentLength() throws IOException {
+        final byte[] small = newData(2048);
+        final ByteBuffer buffer = NetworkUtils.readStream(new ByteArrayInputStream(small), -1);
+        assertEquals(small.length, buffer.array().length);
+        assertArrayEquals(small, getBytes(buffer));
+        // Larger than the scratch buffer
+        final byte[] large = newData(300 * 1024 + 7);
+        assertArrayEquals(large, getBytes(NetworkUtils.readStream(new ByteArrayInputStream(large), -1)));
+        assertArrayEquals(Arrays.copyOf(large, 64 * 1024),
+            getBytes(NetworkUtils.readStream(new ByteArrayInputStream(large, 0, 64 * 1024), -1)));
+    }
+
+    @Test
+    public void getBufferFromURL() throws IOException {
+        final ByteBuffer buffer = NetworkUtils.getBufferFromURL(getURL("/image"), null, 1000);
+        assertArrayEquals(BODY, getBytes(buffer));
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(getURL("/image"), 1000));
+        assertNull(NetworkUtils.getBufferFromURL(getURL("/missing"), null, 1000));
+    }
+
+    @Test
+    public void getStreamIfModified() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getStreamIfModified(getURL("/image"), "\"v0\"", 0, 1000);
+        assertTrue(response.isModified());
+        assertNull(response.getData());
+        assertEquals(ETAG, response.getETag());
+        try (InputStream in = response.getStream()) {
+            assertArrayEquals(BODY, getBytes(NetworkUtils.readStream(in, -1)));
+        }
+        assertFalse(NetworkUtils.getStreamIfModified(getURL("/image"), ETAG, 0, 1000).isModified());
+    }
+
+    @Test
+    public void retryTransientFailures() throws IOException {
+        NetworkUtils.setFetchGovernor(new FetchGovernor(100, 4, 2, 10, 100, 5, 1000));
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(getURL("/flaky"), 1000));
+        assertEquals(3, flakyRequests.get());
+    }
+
+    @Test
+    public void exhaustRetries() throws IOException {
+        NetworkUtils.setFetchGovernor(new FetchGovernor(100, 4, 1, 10, 100, 5, 1000));
+        assertNull(NetworkUtils.getDataFromURL(getURL("/flaky"), 1000));
+        assertEquals(2, flakyRequests.get());
+    }
+
+    @Test
+    public void unexpectedETagIsNotAFailure() throws IOException {
+        // A single failure would open the circuit breaker
+        NetworkUtils.setFetchGovernor(new FetchGovernor(100, 4, 0, 10, 100, 1, 60000));
+        try {
+            NetworkUtils.getStreamFromURL(getURL("/image"), "\"v0\"", 1000);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("Expected ETag: \"v0\". Actual ETag: " + ETAG, e.getMessage());
+        }
+        assertArrayEquals(BODY, NetworkUtils.getDataFromURL(getURL("/image"), 1000));
+    }
+
+    @Test
+    public void gzipResponse() throws IOException {
+        assertArrayEquals(JSON, NetworkUtils.getDataFromURL(getURL("/compressed?gzip"), 1000));
+    }
+
+    @Test
+    public void deflateResponse() throws IOException {
+        assertArrayEquals(JSON, NetworkUtils.getDataFromURL(getURL("/compressed?deflate"), 1000));
+    }
+
+    @Test
+    public void rawDeflateResponse() throws IOException {
+        assertArrayEquals(JSON, NetworkUtils.getDataFromURL(getURL("/compressed?deflate-raw"), 1000));
+    }
+
+    @Test
+    public void compressedStreamIfModified() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getDataIfModified(getURL("/compressed?gzip"), null, 0, 1000);
+        assertArrayEquals(JSON, response.getData());
+    }
+
+    @Test
+    public void parseCompressedJSON() throws IOException {
+        assertEquals(1000, JSONParser.getJSONFromURL(getURL("/compressed?gzip"), 1000).size());
+    }
+
+    @Test
+    public void getRangeIfModified() throws IOException {
+        final ConditionalResponse partial = NetworkUtils.getRangeIfModified(getURL("/range"), null, 0, 100, 1000);
+        assertTrue(partial.isPartial());
+        assertArrayEquals(Arrays.copyOf(JSON, 100), partial.getData());
+        assertEquals(ETAG, partial.getETag());
+        final ConditionalResponse complete = NetworkUtils.getRangeIfModified(getURL("/range"), null, 0,
+            JSON.length + 1, 1000);
+        assertFalse(complete.isPartial());
+        assertArrayEquals(JSON, complete.getData());
+    }
+
+    @Test
+    public void getRangeIgnored() throws IOException {
+        final ConditionalResponse response = NetworkUtils.getRangeIfModified(getURL("/image"), null, 0, 2, 1000);
+        assertFalse(response.isPartial());
+        assertArrayEquals(BODY, response.getData());
+        assertFalse(NetworkUtils.getRangeIfModified(getURL("/image"), ETAG, 0, 2, 1000).isModified());
+    }
+}
@@ -0,0 +1,169 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.json.converter.AttributeProjection;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.IngestMetrics;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class DynamoDBImageWorkerTest {
+
+    private static byte[] newImage(final int width, final int height, final String format) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(Color.BLUE);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, format, baos);
+        return baos.toByteArray();
+    }
+
+    private static byte[] newProgressiveJPEG(final int width, final int height) throws IOException {
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(newImage(width, height, "png")));
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(baos)) {
+            writer.setOutput(out);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    private static void assertThumbnail(final byte[] thumbnail) throws IOException {
+        final BufferedImage result = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(100, result.getWidth());
+        assertEquals(50, result.getHeight());
+        // Left half stays red, right half stays blue
+        assertEquals(Color.RED.getRGB() & 0xf00000, result.getRGB(10, 25) & 0xf00000);
+        assertEquals(Color.BLUE.getRGB() & 0xf0, result.getRGB(90, 25) & 0xf0);
+    }
+
+    private static void testMakeThumbnail(final int width, final int height, final String format) throws IOException {
+        assertThumbnail(DynamoDBImageWorker.makeThumbnail(new ByteArrayInputStream(newImage(width, height, format)),
+            100, 50));
+    }
+
+    private static void testRangeFallback(final String fullETag, final boolean stored) throws IOException {
+        final byte[] jpeg = newImage(1600, 1200, "jpg");
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/image.jpg", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                // A baseline JPEG prefix has no usable thumbnail, so the worker falls back to the whole image
+                final boolean range = exchange.getRequestHeaders().containsKey("Range");
+                final int length = range ? jpeg.length / 2 : jpeg.length;
+                exchange.getResponseHeaders().add("ETag", range ? "\"v1\"" : fullETag);
+                if (range) {
+                    exchange.getResponseHeaders().add("Content-Range", "bytes 0-" + (length - 1) + "/" + jpeg.length);
+                }
+                exchange.sendResponseHeaders(range ? 206 : 200, length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(jpeg, 0, length);
+                }
+            }
+        });
+        server.start();
+        try {
+            final ObjectNode image = JsonNodeFactory.instance.objectNode();
+            image.put(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY, "image");
+            image.put(MarsDynamoDBManager.IMAGE_TABLE_URL_ATTRIBUTE, "http://localhost:"
+                + server.getAddress().getPort() + "/image.jpg");
+            final AmazonDynamoDB dynamoDB = EasyMock.createMock(AmazonDynamoDB.class);
+            if (stored) {
+                EasyMock.expect(dynamoDB.putItem(EasyMock.eq("images"),
+                    EasyMock.<Map<String, AttributeValue>> anyObject())).andReturn(new PutItemResult());
+            }
+            EasyMock.replay(dynamoDB);
+            new DynamoDBImageWorker(dynamoDB, "images", "resources", image, 1000, 100, 50, jpeg.length / 2, false,
+                true, AttributeProjection.ALL, new IngestMetrics()).run();
+            EasyMock.verify(dynamoDB);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testRangeFallbackToSameVersion() throws IOException {
+        testRangeFallback("\"v1\"", true);
+    }
+
+    @Test
+    public void testRangeFallbackToChangedVersion() throws IOException {
+        // The image changed between the requests, so it is skipped until the next run
+        testRangeFallback("\"v2\"", false);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMakeThumbnailUnsupportedFormat() throws IOException {
+        DynamoDBImageWorker.makeThumbnail(new ByteArrayInputStream("not an image".getBytes()), 100, 50);
+    }
+
+    @Test
+    public void testMakeThumbnailFromJPEG() throws IOException {
+        testMakeThumbnail(1600, 1200, "jpg");
+    }
+
+    @Test
+    public void testMakeThumbnailFromPNG() throws IOException {
+        testMakeThumbnail(640, 480, "png");
+    }
+
+    @Test
+    public void testMakeThumbnailFromSmallImage() throws IOException {
+        testMakeThumbnail(60, 30, "png");
+    }
+
+    @Test
+    public void testMakeThumbnailFromProgressivePrefix() throws IOException {
+        final byte[] jpeg = newProgressiveJPEG(1600, 1200);
+        assertThumbnail(DynamoDBImageWorker.makeThumbnailFromPrefix(Arrays.copyOf(jpeg, jpeg.length / 2), true, 100,
+            50));
+    }
+
+    @Test
+    public void testMakeThumbnailFromCompletePrefix() throws IOException {
+        assertThumbnail(DynamoDBImageWorker.makeThumbnailFromPrefix(newImage(640, 480, "jpg"), false, 100, 50));
+    }
+
+    @Test
+    public void testMakeThumbnailFromBaselinePrefix() throws IOException {
+        final byte[] jpeg = newImage(1600, 1200, "jpg");
+        assertNull(DynamoDBImageWorker.makeThumbnailFromPrefix(Arrays.copyOf(jpeg, jpeg.length / 2), true, 100, 50));
+    }
+}
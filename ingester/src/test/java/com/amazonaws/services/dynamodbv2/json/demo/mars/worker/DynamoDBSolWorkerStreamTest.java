@@ -0,0 +1,57 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+public class DynamoDBSolWorkerStreamTest {
+    private static final String MSL_SOL_FILE = WorkerTestUtils.getPath("SOL_MSL.json");
+    private static final String MSL_SOL_EXPECTED_FILE = WorkerTestUtils.getPath("SOL_MSL_EXPECTED.json");
+    private static final String MER_SOL_FILE = WorkerTestUtils.getPath("SOL_MER.json");
+    private static final String MER_SOL_EXPECTED_FILE = WorkerTestUtils.getPath("SOL_MER_EXPECTED.json");
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testStreamMERSol() throws IOException {
+        testStreamSol(MER_SOL_FILE, MER_SOL_EXPECTED_FILE);
+    }
+
+    @Test
+    public void testStreamMSLSol() throws IOException {
+        testStreamSol(MSL_SOL_FILE, MSL_SOL_EXPECTED_FILE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamUnsupportedSol() throws IOException {
+        DynamoDBSolWorker.getImages(new ByteArrayInputStream("{\"type\":\"unknown\",\"sol\":1}".getBytes()));
+    }
+
+    private void testStreamSol(final String file, final String expectedFile) throws IOException {
+        final ArrayNode expected = (ArrayNode) mapper.readTree(new File(expectedFile));
+        // Image sets are processed in stream order, so only the set of images is compared
+        final ArrayNode result = DynamoDBSolWorker.getImages(new FileInputStream(file));
+        assertEquals(expected.size(), result.size());
+        for (final JsonNode image : expected) {
+            assertTrue(result.toString(), contains(result, image));
+        }
+    }
+
+    private static boolean contains(final ArrayNode images, final JsonNode image) {
+        for (final JsonNode candidate : images) {
+            if (candidate.equals(image)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+
+public class DynamoDBWorkerUtilsResourceTest {
+
+    private static final String TABLE = "table";
+    private static final String RESOURCE = "resource";
+    private static final String ETAG = "eTag";
+    private static final long LAST_MODIFIED = 1400000000000L;
+
+    private AmazonDynamoDB dynamoDB;
+
+    private static Map<String, AttributeValue> resourceKey() {
+        final Map<String, AttributeValue> key = new HashMap<>();
+        key.put(MarsDynamoDBManager.RESOURCE_TABLE_HASH_KEY, new AttributeValue(RESOURCE));
+        return key;
+    }
+
+    @Before
+    public void setUp() {
+        dynamoDB = EasyMock.createMock(AmazonDynamoDB.class);
+    }
+
+    @Test
+    public void testUpdateResource() {
+        final Map<String, AttributeValue> item = resourceKey();
+        item.put(DynamoDBWorkerUtils.ETAG_KEY, new AttributeValue(ETAG));
+        item.put(DynamoDBWorkerUtils.LAST_MODIFIED_KEY, new AttributeValue().withN("1400000000000"));
+        EasyMock.expect(dynamoDB.putItem(TABLE, item)).andReturn(new PutItemResult());
+        EasyMock.replay(dynamoDB);
+        DynamoDBWorkerUtils.updateResource(dynamoDB, TABLE, RESOURCE, ETAG, LAST_MODIFIED);
+        EasyMock.verify(dynamoDB);
+    }
+
+    @Test
+    public void testUpdateResourceWithoutValidators() {
+        EasyMock.expect(dynamoDB.putItem(TABLE, resourceKey())).andReturn(new PutItemResult());
+        EasyMock.replay(dynamoDB);
+        DynamoDBWorkerUtils.updateResource(dynamoDB, TABLE, RESOURCE, null, 0);
+        EasyMock.verify(dynamoDB);
+    }
+
+    @Test
+    public void testGetStoredResourceExists() {
+        final Map<String, AttributeValue> item = resourceKey();
+        item.put(DynamoDBWorkerUtils.ETAG_KEY, new AttributeValue(ETAG));
+        item.put(DynamoDBWorkerUtils.LAST_MODIFIED_KEY, new AttributeValue().withN("1400000000000"));
+        EasyMock.expect(dynamoDB.getItem(TABLE, resourceKey())).andReturn(new GetItemResult().withItem(item));
+        EasyMock.replay(dynamoDB);
+        final Map<String, AttributeValue> stored = DynamoDBWorkerUtils.getStoredResource(dynamoDB, TABLE, RESOURCE);
+        EasyMock.verify(dynamoDB);
+        assertEquals(ETAG, stored.get(DynamoDBWorkerUtils.ETAG_KEY).getS());
+        assertEquals(LAST_MODIFIED, Long.parseLong(stored.get(DynamoDBWorkerUtils.LAST_MODIFIED_KEY).getN()));
+    }
+
+    @Test
+    public void testGetStoredResourceDoesNotExist() {
+        EasyMock.expect(dynamoDB.getItem(TABLE, resourceKey())).andReturn(new GetItemResult());
+        EasyMock.replay(dynamoDB);
+        final Map<String, AttributeValue> stored = DynamoDBWorkerUtils.getStoredResource(dynamoDB, TABLE, RESOURCE);
+        EasyMock.verify(dynamoDB);
+        assertTrue(stored.isEmpty());
+    }
+}
@@ -0,0 +1,394 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.JSONParser;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ISO8601Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server that serves a generated Mars image feed: a root JSON, mission manifests, sols, and JPEG images
+ * in the formats parsed by {@link DynamoDBJSONRootWorker}, {@link DynamoDBMissionWorker}, and
+ * {@link DynamoDBSolWorker}. Even missions use the MSL formats and odd missions the MER formats. The feed is
+ * deterministic for a configuration, so throughput runs are repeatable offline.
+ * <p>
+ * The server answers conditional requests by ETag, byte range requests for images, and gzip requests for JSON. It can
+ * delay every response and fail a fraction of the requests with 503.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} to serve a feed until the process is killed, and point JSON.root at the printed URL.
+ * </p>
+ */
+public class SyntheticFeedServer {
+
+    /**
+     * Configuration of the generated feed.
+     */
+    public static class Config {
+        private int missions = 3;
+        private int solsPerMission = 10;
+        private int imagesPerSol = 20;
+        private int instrumentsPerSol = 2;
+        private int imageWidth = 1024;
+        private int imageHeight = 1024;
+        private long latency = 0;
+        private double errorRate = 0;
+        private boolean gzip = true;
+        private boolean eTags = true;
+        private long seed = 0;
+
+        public Config withErrorRate(final double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Config withETags(final boolean eTags) {
+            this.eTags = eTags;
+            return this;
+        }
+
+        public Config withGzip(final boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public Config withImageSize(final int width, final int height) {
+            imageWidth = width;
+            imageHeight = height;
+            return this;
+        }
+
+        public Config withImagesPerSol(final int imagesPerSol) {
+            this.imagesPerSol = imagesPerSol;
+            return this;
+        }
+
+        public Config withInstrumentsPerSol(final int instrumentsPerSol) {
+            this.instrumentsPerSol = instrumentsPerSol;
+            return this;
+        }
+
+        /**
+         * @param latency
+         *            Delay of every response in milliseconds
+         */
+        public Config withLatency(final long latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Config withMissions(final int missions) {
+            this.missions = missions;
+            return this;
+        }
+
+        /**
+         * @param seed
+         *            Seed of the image pixels and of the failed requests
+         */
+        public Config withSeed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Config withSolsPerMission(final int solsPerMission) {
+            this.solsPerMission = solsPerMission;
+            return this;
+        }
+    }
+
+    private static final String[] MSL_INSTRUMENTS = {"fcam", "rcam", "ncam", "mast", "mahli", "ccam" };
+    private static final String[] MER_INSTRUMENTS = {"pcam", "ncam", "fcam", "rcam", "mi" };
+    private static final long EPOCH = 1344211200000L; // 2012-08-06
+
+    public static void main(final String[] args) throws IOException {
+        final Config config = new Config();
+        if (args.length >= 3) {
+            config.withMissions(Integer.parseInt(args[0])).withSolsPerMission(Integer.parseInt(args[1]))
+                .withImagesPerSol(Integer.parseInt(args[2]));
+        }
+        final SyntheticFeedServer server = new SyntheticFeedServer(config, args.length >= 4 ? Integer
+            .parseInt(args[3]) : 0);
+        server.start();
+        System.out.println("Serving synthetic feed at " + server.getRootURL());
+    }
+
+    private static String getMissionName(final int mission) {
+        switch (mission) {
+            case 0:
+                return "MSL";
+            case 1:
+                return "MERB";
+            case 2:
+                return "MERA";
+            default:
+                return "MISSION" + mission;
+        }
+    }
+
+    private static boolean isMSL(final int mission) {
+        return mission % 2 == 0;
+    }
+
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final Random failures;
+    private volatile int generation = 1;
+    private volatile byte[] image;
+
+    public SyntheticFeedServer(final Config config) throws IOException {
+        this(config, 0);
+    }
+
+    /**
+     * @param port
+     *            Port on localhost, or 0 for any free port
+     */
+    public SyntheticFeedServer(final Config config, final int port) throws IOException {
+        this.config = config;
+        failures = new Random(config.seed);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    private String getBaseURL() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * @return Number of images in the feed
+     */
+    public int getImageCount() {
+        return config.missions * config.solsPerMission * config.imagesPerSol;
+    }
+
+    private synchronized byte[] getImage() throws IOException {
+        if (image == null) {
+            // Noise does not compress, so the JPEG size grows with the pixel count like a photo
+            final Random random = new Random(config.seed);
+            final BufferedImage pixels = new BufferedImage(config.imageWidth, config.imageHeight,
+                BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < config.imageHeight; y++) {
+                for (int x = 0; x < config.imageWidth; x++) {
+                    pixels.setRGB(x, y, (x * 255 / config.imageWidth) << 16 | random.nextInt(64) << 8
+                        | y * 255 / config.imageHeight);
+                }
+            }
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageIO.write(pixels, "jpg", baos);
+            image = baos.toByteArray();
+        }
+        return image;
+    }
+
+    private ObjectNode getManifest(final int mission) {
+        final ObjectNode manifest = JsonNodeFactory.instance.objectNode();
+        manifest.put("type", isMSL(mission) ? "msl-images-manifest-2.0" : "mer-images-manifest-1.0");
+        manifest.put("latest_sol", config.solsPerMission - 1);
+        manifest.put("num_images", config.solsPerMission * config.imagesPerSol);
+        final ArrayNode sols = manifest.putArray("sols");
+        for (int sol = 0; sol < config.solsPerMission; sol++) {
+            final ObjectNode entry = sols.addObject();
+            entry.put("sol", sol);
+            entry.put("num_images", config.imagesPerSol);
+            entry.put("url", getBaseURL() + "/" + getMissionName(mission) + "/sols/" + sol + ".json");
+        }
+        return manifest;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private ObjectNode getRoot() {
+        final ObjectNode root = JsonNodeFactory.instance.objectNode();
+        for (int mission = 0; mission < config.missions; mission++) {
+            root.putObject(getMissionName(mission)).put("image_manifest",
+                getBaseURL() + "/" + getMissionName(mission) + "/image_manifest.json");
+        }
+        return root;
+    }
+
+    public URL getRootURL() throws IOException {
+        return new URL(getBaseURL() + "/root.json");
+    }
+
+    private ObjectNode getSol(final int mission, final int sol) {
+        final String missionName = getMissionName(mission);
+        final String[] instruments = isMSL(mission) ? MSL_INSTRUMENTS : MER_INSTRUMENTS;
+        final int instrumentCount = Math.max(1, Math.min(config.instrumentsPerSol, instruments.length));
+        final ObjectNode root = JsonNodeFactory.instance.objectNode();
+        root.put("type", isMSL(mission) ? "msl-images-2.0" : "mer-images-1.0");
+        root.put("mission", missionName.toLowerCase());
+        root.put("sol", sol);
+        for (int i = 0; i < instrumentCount; i++) {
+            root.putArray(instruments[i] + "_images");
+        }
+        for (int n = 0; n < config.imagesPerSol; n++) {
+            final String instrument = instruments[n % instrumentCount];
+            final String imageID = missionName + "_" + sol + "_" + instrument + "_" + n;
+            final ObjectNode imageSet = ((ArrayNode) root.get(instrument + "_images")).addObject();
+            imageSet.put("id", imageID);
+            final ObjectNode image = imageSet.putArray("images").addObject();
+            image.put("imageid", imageID);
+            image.put("instrument", instrument);
+            image.put("url", getBaseURL() + "/" + missionName + "/images/" + sol + "/" + imageID + ".JPG");
+            final ObjectNode time = image.putObject("time");
+            final long creation = EPOCH + sol * 88775244L + n * 1000L;
+            time.put("creation_timestamp_utc", ISO8601Utils.format(new Date(creation), true));
+            time.put("spacecraft_clock", Long.toString(creation / 1000));
+            final ObjectNode dimensions = image.putObject("dimensions");
+            dimensions.putArray("area").add(config.imageWidth).add(config.imageHeight);
+        }
+        return root;
+    }
+
+    /**
+     * Changes the ETags of all resources, as if the whole feed was republished.
+     */
+    public void nextGeneration() {
+        generation++;
+    }
+
+    private void send(final HttpExchange exchange, final byte[] body, final String contentType, final String eTag,
+        final boolean compressible) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        if (config.eTags) {
+            exchange.getResponseHeaders().add("ETag", eTag);
+        }
+        if (config.eTags && eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        final String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        byte[] data = body;
+        int status = 200;
+        if (compressible && config.gzip && accepted != null && accepted.contains("gzip")) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+                gzip.write(body);
+            }
+            data = baos.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        } else if (range != null && range.startsWith("bytes=0-")) {
+            final int end = (int) Math.min(body.length - 1, Long.parseLong(range.substring(8).trim()));
+            data = Arrays.copyOf(body, end + 1);
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range", "bytes 0-" + end + "/" + body.length);
+        }
+        exchange.sendResponseHeaders(status, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+        bytesSent.addAndGet(data.length);
+    }
+
+    private void serve(final HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (config.latency > 0) {
+            try {
+                Thread.sleep(config.latency);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (config.errorRate > 0 && failures.nextDouble() < config.errorRate) {
+            errors.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+        final String path = exchange.getRequestURI().getPath();
+        final String eTag = "\"" + generation + "-" + Integer.toHexString(path.hashCode()) + "\"";
+        final String[] parts = path.substring(1).split("/");
+        final int mission = parts.length > 1 ? indexOfMission(parts[0]) : -1;
+        try {
+            if ("root.json".equals(path.substring(1))) {
+                send(exchange, JSONParser.MAPPER.writeValueAsBytes(getRoot()), "application/json", eTag, true);
+            } else if (mission != -1 && parts.length == 2 && "image_manifest.json".equals(parts[1])) {
+                send(exchange, JSONParser.MAPPER.writeValueAsBytes(getManifest(mission)), "application/json",
+                    eTag, true);
+            } else if (mission != -1 && parts.length == 3 && "sols".equals(parts[1]) && parts[2].endsWith(".json")) {
+                final int sol = Integer.parseInt(parts[2].substring(0, parts[2].length() - 5));
+                if (sol < 0 || sol >= config.solsPerMission) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                send(exchange, JSONParser.MAPPER.writeValueAsBytes(getSol(mission, sol)), "application/json", eTag,
+                    true);
+            } else if (mission != -1 && parts.length == 4 && "images".equals(parts[1])) {
+                send(exchange, getImage(), "image/jpeg", eTag, false);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (final NumberFormatException e) {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    private int indexOfMission(final String name) {
+        for (int mission = 0; mission < config.missions; mission++) {
+            if (getMissionName(mission).equals(name)) {
+                return mission;
+            }
+        }
+        return -1;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
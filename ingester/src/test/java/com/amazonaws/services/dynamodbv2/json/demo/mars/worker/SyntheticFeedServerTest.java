@@ -0,0 +1,97 @@
+package com.amazonaws.services.dynamodbv2.json.demo.mars.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.ConditionalResponse;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.FetchGovernor;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.MarsDynamoDBManager;
+import com.amazonaws.services.dynamodbv2.json.demo.mars.util.NetworkUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+public class SyntheticFeedServerTest {
+
+    private SyntheticFeedServer server;
+    private FetchGovernor previousGovernor;
+
+    private void start(final SyntheticFeedServer.Config config) throws IOException {
+        server = new SyntheticFeedServer(config);
+        server.start();
+        previousGovernor = NetworkUtils.getFetchGovernor();
+    }
+
+    @After
+    public void tearDown() {
+        if (previousGovernor != null) {
+            NetworkUtils.setFetchGovernor(previousGovernor);
+        }
+        server.stop();
+    }
+
+    @Test
+    public void crawlFeed() throws IOException {
+        start(new SyntheticFeedServer.Config().withMissions(3).withSolsPerMission(4).withImagesPerSol(5)
+            .withImageSize(64, 48));
+        final Map<String, String> missions = DynamoDBJSONRootWorker.getMissionToManifestMap(server.getRootURL(),
+            1000);
+        assertEquals(3, missions.size());
+        final Set<String> imageIDs = new HashSet<>();
+        for (final String manifest : missions.values()) {
+            final Map<Integer, String> sols = DynamoDBMissionWorker.getSolJSON(new URL(manifest), 1000);
+            assertEquals(4, sols.size());
+            for (final String sol : sols.values()) {
+                final ArrayNode images = DynamoDBSolWorker.getImages(new URL(sol), 1000);
+                assertEquals(5, images.size());
+                for (final JsonNode image : images) {
+                    assertTrue(imageIDs.add(image.get(MarsDynamoDBManager.IMAGE_TABLE_HASH_KEY).asText()));
+                    assertTrue(image.has(MarsDynamoDBManager.IMAGE_TABLE_TIME_ATTRIBUTE));
+                }
+            }
+        }
+        assertEquals(server.getImageCount(), imageIDs.size());
+        final JsonNode image = DynamoDBSolWorker.getImages(
+            new URL(DynamoDBMissionWorker.getSolJSON(new URL(missions.get("MSL")), 1000).get(0)), 1000).get(0);
+        final byte[] data = NetworkUtils.getDataFromURL(
+            new URL(image.get(MarsDynamoDBManager.IMAGE_TABLE_URL_ATTRIBUTE).asText()), 1000);
+        assertEquals(64, ImageIO.read(new ByteArrayInputStream(data)).getWidth());
+    }
+
+    @Test
+    public void conditionalRequests() throws IOException {
+        start(new SyntheticFeedServer.Config().withMissions(1));
+        final URL root = server.getRootURL();
+        final ConditionalResponse first = NetworkUtils.getDataIfModified(root, null, 0, 1000);
+        assertNotNull(first.getETag());
+        assertFalse(NetworkUtils.getDataIfModified(root, first.getETag(), 0, 1000).isModified());
+        server.nextGeneration();
+        assertTrue(NetworkUtils.getDataIfModified(root, first.getETag(), 0, 1000).isModified());
+    }
+
+    @Test
+    public void errorsAndLatency() throws IOException {
+        start(new SyntheticFeedServer.Config().withMissions(1).withErrorRate(0.5).withLatency(10).withSeed(42));
+        NetworkUtils.setFetchGovernor(new FetchGovernor(1000, 4, 10, 0, 0, 100, 1000));
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, DynamoDBJSONRootWorker.getMissionToManifestMap(server.getRootURL(), 1000).size());
+        }
+        assertTrue(server.getErrorCount() > 0);
+        assertTrue(server.getRequestCount() >= 10 + server.getErrorCount());
+        assertTrue(System.currentTimeMillis() - start >= 10 * 10);
+    }
+}